@@ -0,0 +1,80 @@
+package data_generator;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Walker's alias method, built with Vose's algorithm: draws index i with
+ * probability weights[i] / sum(weights) in O(1) time, using one bounded int
+ * and one double from the random stream and no allocation.
+ *
+ * Immutable after construction; shared by all generation threads.
+ */
+final class AliasTable {
+
+  // Probability of keeping the column's own index rather than its alias
+  private final double[] probabilities;
+  private final int[] aliases;
+
+  AliasTable(double[] weights) {
+    int n = weights.length;
+    if (n == 0) {
+      throw new IllegalArgumentException("An alias table needs at least one weight.");
+    }
+    double sum = 0;
+    for (double weight : weights) {
+      if (!(weight >= 0) || Double.isInfinite(weight)) {
+        throw new IllegalArgumentException("Weights must be non-negative and finite, got: " + weight);
+      }
+      sum += weight;
+    }
+    if (!(sum > 0)) {
+      throw new IllegalArgumentException("At least one weight must be positive.");
+    }
+
+    this.probabilities = new double[n];
+    this.aliases = new int[n];
+    // Columns scaled so the average is 1, split into under- and over-full ones (kept as stacks)
+    double[] scaled = new double[n];
+    int[] small = new int[n];
+    int[] large = new int[n];
+    int smallCount = 0;
+    int largeCount = 0;
+    for (int i = 0; i < n; i++) {
+      scaled[i] = weights[i] * n / sum;
+      if (scaled[i] < 1) {
+        small[smallCount++] = i;
+      } else {
+        large[largeCount++] = i;
+      }
+    }
+    // Fill each under-full column with the excess of an over-full one
+    while (smallCount > 0 && largeCount > 0) {
+      int less = small[--smallCount];
+      int more = large[--largeCount];
+      probabilities[less] = scaled[less];
+      aliases[less] = more;
+      scaled[more] = scaled[more] + scaled[less] - 1;
+      if (scaled[more] < 1) {
+        small[smallCount++] = more;
+      } else {
+        large[largeCount++] = more;
+      }
+    }
+    // What is left is full up to rounding error
+    while (largeCount > 0) {
+      probabilities[large[--largeCount]] = 1;
+    }
+    while (smallCount > 0) {
+      probabilities[small[--smallCount]] = 1;
+    }
+  }
+
+  int size() {
+    return probabilities.length;
+  }
+
+  int sample(RandomGenerator random) {
+    int column = random.nextInt(probabilities.length);
+    return random.nextDouble() < probabilities[column] ? column : aliases[column];
+  }
+}
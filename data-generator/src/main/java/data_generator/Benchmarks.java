@@ -0,0 +1,80 @@
+package data_generator;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Minimal harness for the micro-benchmarks shipped with the generator. Each
+ * case runs a warm-up pass and then a measured pass on the calling thread, and
+ * reports the time, the bytes allocated and the bytes produced per operation.
+ *
+ * This is intentionally simple (no forking, no statistics); it is meant for
+ * comparing alternatives side by side on the same machine.
+ */
+final class Benchmarks {
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  // Accumulates results so the JIT cannot drop the measured work
+  private static long blackhole;
+
+  private Benchmarks() {}
+
+  /** Results of one benchmark case, per operation. */
+  static final class Result {
+    final String name;
+    final double nanosPerOp;
+    final double allocatedBytesPerOp;
+    final double outputBytesPerOp;
+
+    Result(String name, double nanosPerOp, double allocatedBytesPerOp, double outputBytesPerOp) {
+      this.name = name;
+      this.nanosPerOp = nanosPerOp;
+      this.allocatedBytesPerOp = allocatedBytesPerOp;
+      this.outputBytesPerOp = outputBytesPerOp;
+    }
+
+    void print() {
+      System.out.printf("%-32s %10.1f ns/op %10.1f B alloc/op %10.1f B out/op%n",
+          name, nanosPerOp, allocatedBytesPerOp, outputBytesPerOp);
+    }
+  }
+
+  /**
+   * Runs {@code operation} for the given number of iterations after an equal
+   * warm-up. The operation receives the iteration number and returns the
+   * number of bytes it produced.
+   */
+  static Result run(String name, int iterations, IntUnaryOperator operation) {
+    for (int i = 0; i < iterations; i++) {
+      blackhole += operation.applyAsInt(i);
+    }
+
+    long threadId = Thread.currentThread().threadId();
+    long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    long outputBytes = 0;
+    for (int i = 0; i < iterations; i++) {
+      outputBytes += operation.applyAsInt(i);
+    }
+    long elapsed = System.nanoTime() - start;
+    long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+    blackhole += outputBytes;
+
+    Result result = new Result(name, (double) elapsed / iterations, (double) allocated / iterations,
+        (double) outputBytes / iterations);
+    result.print();
+    return result;
+  }
+
+  /** Parses the optional iteration count argument. */
+  static int iterations(String[] args, int defaultIterations) {
+    return args.length > 0 ? Integer.parseInt(args[0]) : defaultIterations;
+  }
+
+  /** Keeps a value alive so its computation is not optimized away. */
+  static void consume(long value) {
+    blackhole += value;
+  }
+}
@@ -0,0 +1,112 @@
+package data_generator;
+
+import java.util.Arrays;
+
+/**
+ * Shared writers of the binary payload formats. Both Protocol Buffers and
+ * Avro write a string as a varint length followed by its UTF-8 bytes, so the
+ * card number, IP address and timestamp (all shorter than 64 bytes, which
+ * makes their length a single byte in either format) are written straight
+ * into the buffer after a one-byte placeholder that is filled in afterwards.
+ */
+abstract class BinaryTransactionEncoder implements TransactionEncoder {
+
+  // Longest value written through a one-byte length placeholder
+  private static final int MAX_SHORT_STRING = 63;
+
+  protected final CardCatalog cards;
+  protected final MerchantDictionary merchants;
+  private final TimestampEncoder timestamps = new TimestampEncoder();
+  protected byte[] buffer = new byte[128];
+  protected int length;
+
+  BinaryTransactionEncoder(CardCatalog cards, MerchantDictionary merchants) {
+    this.cards = cards;
+    this.merchants = merchants;
+  }
+
+  @Override
+  public byte[] buffer() {
+    return buffer;
+  }
+
+  // --- Writers ---
+
+  protected void putByte(int b) {
+    ensureCapacity(1);
+    buffer[length++] = (byte) b;
+  }
+
+  protected void putBytes(byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, length, bytes.length);
+    length += bytes.length;
+  }
+
+  /** Writes an unsigned base-128 varint. */
+  protected void putVarint(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[length++] = (byte) value;
+  }
+
+  protected void putDoubleLittleEndian(double value) {
+    ensureCapacity(8);
+    long bits = Double.doubleToRawLongBits(value);
+    for (int i = 0; i < 8; i++) {
+      buffer[length++] = (byte) (bits >>> (8 * i));
+    }
+  }
+
+  /**
+   * Reserves a one-byte length in front of a short string and returns its
+   * position, for {@link #endShortString}.
+   */
+  protected int beginShortString() {
+    ensureCapacity(1 + MAX_SHORT_STRING);
+    return length++;
+  }
+
+  /** Returns the number of bytes written since {@link #beginShortString}. */
+  protected int endShortString(int lengthPosition) {
+    return length - lengthPosition - 1;
+  }
+
+  protected void putCardNumber(int cardIndex) {
+    length += cards.writeDigits(cardIndex, buffer, length);
+  }
+
+  protected void putTimestamp(long epochMilli) {
+    length += timestamps.write(epochMilli, buffer, length);
+  }
+
+  /** Writes a packed IPv4 address in dotted-decimal notation. */
+  protected void putIp(int ip) {
+    putOctet(ip >>> 24);
+    buffer[length++] = '.';
+    putOctet((ip >>> 16) & 0xFF);
+    buffer[length++] = '.';
+    putOctet((ip >>> 8) & 0xFF);
+    buffer[length++] = '.';
+    putOctet(ip & 0xFF);
+  }
+
+  private void putOctet(int octet) {
+    if (octet >= 100) {
+      buffer[length++] = (byte) ('0' + octet / 100);
+      buffer[length++] = (byte) ('0' + octet / 10 % 10);
+    } else if (octet >= 10) {
+      buffer[length++] = (byte) ('0' + octet / 10);
+    }
+    buffer[length++] = (byte) ('0' + octet % 10);
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+    }
+  }
+}
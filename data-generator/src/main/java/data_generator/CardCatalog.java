@@ -0,0 +1,101 @@
+package data_generator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.random.RandomGenerator;
+
+/**
+ * The population of fake credit cards. A card is just its index in
+ * [0, size()); the card number is derived from the index on demand, so the
+ * catalogue holds no per-card data and costs the same to create for ten
+ * thousand or a hundred million cards.
+ *
+ * Card numbers keep the original shapes: 40% Visa-like (4200 + 12 digits),
+ * 40% Mastercard-like (5500 + 12 digits) and 20% Amex-like (3700 + 11 digits).
+ * The last 11 digits are a bijection of the index, so no two cards share a number.
+ */
+final class CardCatalog {
+
+  // Longest card number in digits
+  static final int MAX_DIGITS = 16;
+
+  private static final long BODY_MODULUS = 100_000_000_000L; // 10^11
+
+  private static final byte[] VISA_PREFIX = {'4', '2', '0', '0'};
+  private static final byte[] MASTERCARD_PREFIX = {'5', '5', '0', '0'};
+  private static final byte[] AMEX_PREFIX = {'3', '7', '0', '0'};
+
+  private final int size;
+
+  // Seed-derived parameters of the index -> number mapping
+  private final long multiplier;
+  private final long offset;
+  private final long hashKey;
+
+  CardCatalog(int size, RandomGenerator random) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Card count must be positive, got: " + size);
+    }
+    this.size = size;
+    // Any multiplier coprime with 10 is a bijection modulo 10^11; keeping it below 2^32 avoids overflow
+    long m = random.nextLong(1L << 20, 1L << 32) | 1L;
+    if (m % 5 == 0) {
+      m += 2;
+    }
+    this.multiplier = m;
+    this.offset = random.nextLong(BODY_MODULUS);
+    this.hashKey = random.nextLong();
+  }
+
+  /** Number of cards in the catalogue. */
+  int size() {
+    return size;
+  }
+
+  /** Number of digits in the card number for the given index (15 or 16). */
+  int length(int index) {
+    return network(index) < 8 ? 16 : 15;
+  }
+
+  /**
+   * Writes the ASCII digits of the card number for the given index into
+   * {@code dst} at {@code off} and returns the number of bytes written.
+   */
+  int writeDigits(int index, byte[] dst, int off) {
+    int network = network(index);
+    byte[] prefix = network < 4 ? VISA_PREFIX : network < 8 ? MASTERCARD_PREFIX : AMEX_PREFIX;
+    System.arraycopy(prefix, 0, dst, off, prefix.length);
+    int pos = off + prefix.length;
+
+    if (network < 8) {
+      // 12 digit body: one extra hash-derived digit in front of the 11 digit bijection
+      dst[pos++] = (byte) ('0' + (int) ((mix(index) >>> 8) % 10));
+    }
+
+    long body = (index * multiplier + offset) % BODY_MODULUS;
+    for (int i = pos + 10; i >= pos; i--) {
+      dst[i] = (byte) ('0' + (int) (body % 10));
+      body /= 10;
+    }
+    return pos + 11 - off;
+  }
+
+  /** The card number for the given index as a String (e.g. for ordering keys and logs). */
+  String cardNumber(int index) {
+    byte[] digits = new byte[MAX_DIGITS];
+    int length = writeDigits(index, digits, 0);
+    return new String(digits, 0, length, StandardCharsets.US_ASCII);
+  }
+
+  // 0-3 Visa-like, 4-7 Mastercard-like, 8-9 Amex-like
+  private int network(int index) {
+    return (int) Long.remainderUnsigned(mix(index), 10);
+  }
+
+  // SplitMix64 finaliser over the seeded index
+  private long mix(int index) {
+    long z = index ^ hashKey;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
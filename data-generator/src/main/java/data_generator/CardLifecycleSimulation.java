@@ -0,0 +1,181 @@
+package data_generator;
+
+import data_generator.TransactionGenerator.TransactionEvent;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+
+/**
+ * Generation mode in which every active card is its own virtual thread
+ * running a spending life-cycle: it sleeps on the simulated clock between
+ * purchases and runs multi-step fraud scenarios inline, sleeping between the
+ * steps. Many cards are "live" at the same time, so traffic for different
+ * ordering keys interleaves the way it does for real cardholders.
+ *
+ * The simulated clock runs --time-scale times faster than real time. Each card
+ * only ever publishes from its own thread, which keeps the per-card order.
+ */
+final class CardLifecycleSimulation implements EventGenerator {
+
+  private final CardCatalog cards;
+  private final CardIpStore cardIps;
+  private final TransactionSink sink;
+  private final Supplier<TransactionMessageEncoder> encoderFactory;
+  private final FraudScenarioRegistry scenarios;
+  private final Popularity popularity;
+  private final int activeCards;
+  private final double timeScale;
+  private final SplittableGenerator rootRandom;
+  private final long simulatedStartTime;
+
+  // Encoders are pooled rather than owned by each card, so a million parked cards don't each hold a buffer
+  private final ConcurrentLinkedQueue<TransactionMessageEncoder> encoders = new ConcurrentLinkedQueue<>();
+
+  private ExecutorService executor;
+  private long wallStartNanos;
+
+  /**
+   * @param encoderFactory creates message encoders for the pool
+   * @param scenarios the fraud scenarios the cards run
+   * @param popularity skew of the merchants the cards buy from
+   * @param activeCards number of cards simulated concurrently, spread evenly over the catalogue
+   * @param timeScale simulated milliseconds that pass per real millisecond
+   */
+  CardLifecycleSimulation(CardCatalog cards, CardIpStore cardIps, TransactionSink sink,
+      Supplier<TransactionMessageEncoder> encoderFactory, FraudScenarioRegistry scenarios, Popularity popularity,
+      int activeCards, double timeScale, SplittableGenerator rootRandom, long simulatedStartTime) {
+    if (activeCards > cards.size()) {
+      throw new IllegalArgumentException(
+          "Cannot simulate " + activeCards + " active cards out of " + cards.size() + " cards.");
+    }
+    this.cards = cards;
+    this.cardIps = cardIps;
+    this.sink = sink;
+    this.encoderFactory = encoderFactory;
+    this.scenarios = scenarios;
+    this.popularity = popularity;
+    this.activeCards = activeCards;
+    this.timeScale = timeScale;
+    this.rootRandom = rootRandom;
+    this.simulatedStartTime = simulatedStartTime;
+  }
+
+  /** Starts one virtual thread per active card. */
+  @Override
+  public void start() {
+    wallStartNanos = System.nanoTime();
+    executor = Executors.newVirtualThreadPerTaskExecutor();
+    for (int i = 0; i < activeCards; i++) {
+      int cardIndex = (int) ((long) i * cards.size() / activeCards);
+      // Streams are split here, in card order, so seeded runs stay reproducible per card
+      RandomGenerator random = rootRandom.split();
+      executor.execute(() -> runCard(cardIndex, random));
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Override
+  public void awaitTermination() throws InterruptedException {
+    executor.shutdown();
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        // Cards run until stopped
+      }
+    } catch (InterruptedException e) {
+      stop();
+      throw e;
+    }
+  }
+
+  // --- Card Life-cycle ---
+
+  private void runCard(int cardIndex, RandomGenerator random) {
+    TransactionSampler sampler = new TransactionSampler(random, cardIps, popularity);
+    try {
+      // Stagger the first purchase so the cards don't start in lockstep
+      long dueNanos = sleepSimulated(randomPurchaseGap(random));
+      while (!Thread.currentThread().isInterrupted()) {
+        if (random.nextDouble() < TransactionGenerator.FRAUD_SCENARIO_PROBABILITY) {
+          runFraudScenario(cardIndex, sampler, random, dueNanos);
+        } else {
+          // --- Normal purchase, using the card's "sticky" IP ---
+          int receiver = sampler.getRandomReceiver();
+          publish(new TransactionEvent(cardIndex, receiver, sampler.getRandomAmount(receiver),
+              sampler.getIpForCard(cardIndex), simulatedNow()), "NORMAL", dueNanos);
+        }
+        dueNanos = sleepSimulated(randomPurchaseGap(random));
+      }
+    } catch (InterruptedException e) {
+      // The simulation is stopping; nothing to clean up
+    }
+  }
+
+  /**
+   * Runs one multi-step fraud scenario, waiting each step's delay of simulated
+   * time before it. {@code dueNanos} is when the scenario was due to start.
+   */
+  private void runFraudScenario(int cardIndex, TransactionSampler sampler, RandomGenerator random, long dueNanos)
+      throws InterruptedException {
+    int fraudIp = sampler.generateNewRandomIp(); // New, non-sticky IP for the compromised activity
+
+    // Ensure the card's "home" IP is set for the normal path, even if we use a new one now.
+    sampler.getIpForCard(cardIndex);
+
+    FraudScenario scenario = scenarios.sample(random);
+    for (int step = 0; step < scenario.stepCount(); step++) {
+      if (scenario.delayMillis(step) > 0) {
+        dueNanos = sleepSimulated(scenario.delayMillis(step));
+      }
+      int receiver = scenario.receiver(step, sampler);
+      publish(new TransactionEvent(cardIndex, receiver, scenario.amountCents(step, receiver, sampler),
+          fraudIp, simulatedNow()), scenario.tag(step), dueNanos);
+    }
+  }
+
+  private void publish(TransactionEvent event, String sourceTag, long intendedNanos) throws InterruptedException {
+    TransactionMessageEncoder encoder = encoders.poll();
+    if (encoder == null) {
+      encoder = encoderFactory.get();
+    }
+    try {
+      TransactionGenerator.publishMessage(sink, cards, encoder, event, sourceTag, intendedNanos);
+    } finally {
+      encoders.offer(encoder);
+    }
+  }
+
+  // --- Simulated Clock ---
+
+  private static long randomPurchaseGap(RandomGenerator random) {
+    return random.nextLong(TransactionGenerator.MIN_TIME_INCREMENT_MS, TransactionGenerator.MAX_TIME_INCREMENT_MS + 1);
+  }
+
+  /** Current simulated time in epoch milliseconds. */
+  private long simulatedNow() {
+    double elapsedMillis = (System.nanoTime() - wallStartNanos) / 1_000_000.0;
+    return simulatedStartTime + (long) (elapsedMillis * timeScale);
+  }
+
+  /**
+   * Parks the (virtual) thread for the given amount of simulated time and
+   * returns when it was due to wake up (System.nanoTime()), which can be
+   * earlier than it actually did.
+   */
+  private long sleepSimulated(long simulatedMillis) throws InterruptedException {
+    long sleepNanos = (long) (simulatedMillis * 1_000_000.0 / timeScale);
+    long dueNanos = System.nanoTime() + sleepNanos;
+    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+    return dueNanos;
+  }
+}
@@ -0,0 +1,72 @@
+package data_generator;
+
+import data_generator.TransactionGenerator.TransactionEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Measures the CPU cost of each payload codec against the bytes it saves, on
+ * single messages and on batches. Single messages correspond to
+ * --payload-codec; gzip over a whole batch approximates what gRPC transport
+ * compression (--grpc-compression-threshold) does with a publish request.
+ *
+ * * Usage: java -cp target/TransactionGenerator.jar data_generator.CompressionBenchmark [ITERATIONS]
+ */
+public final class CompressionBenchmark {
+
+  private static final int SAMPLE_EVENTS = 4096;
+  private static final int BATCH_SIZE = 100;
+
+  public static void main(String[] args) {
+    int iterations = Benchmarks.iterations(args, 200_000);
+
+    RandomGenerator random = RandomStreams.root(42);
+    CardCatalog cards = new CardCatalog(10000, random);
+    CardIpStore cardIps = new CardIpStore(cards.size());
+    TransactionSampler sampler = new TransactionSampler(random, cardIps);
+    TransactionJsonEncoder encoder = new TransactionJsonEncoder(cards, TransactionGenerator.MERCHANTS);
+
+    // Pre-encode the events so only the codecs are measured
+    byte[][] payloads = new byte[SAMPLE_EVENTS][];
+    long time = System.currentTimeMillis();
+    for (int i = 0; i < payloads.length; i++) {
+      int cardIndex = random.nextInt(cards.size());
+      time += random.nextLong(TransactionGenerator.MIN_TIME_INCREMENT_MS, TransactionGenerator.MAX_TIME_INCREMENT_MS);
+      int receiver = sampler.getRandomReceiver();
+      int length = encoder.encode(new TransactionEvent(cardIndex, receiver,
+          sampler.getRandomAmount(receiver), sampler.getIpForCard(cardIndex), time));
+      payloads[i] = Arrays.copyOf(encoder.buffer(), length);
+    }
+    byte[][] batches = new byte[SAMPLE_EVENTS / BATCH_SIZE][];
+    for (int b = 0; b < batches.length; b++) {
+      ByteArrayOutputStream batch = new ByteArrayOutputStream();
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        batch.writeBytes(payloads[b * BATCH_SIZE + i]);
+      }
+      batches[b] = batch.toByteArray();
+    }
+
+    System.out.println("Per message:");
+    Benchmarks.run("none", iterations, i -> payloads[i & (SAMPLE_EVENTS - 1)].length);
+    for (PayloadCodec.Type type : new PayloadCodec.Type[] {PayloadCodec.Type.GZIP, PayloadCodec.Type.ZSTD}) {
+      PayloadCodec codec = PayloadCodec.create(type);
+      Benchmarks.run(codec.contentEncoding(), iterations, i -> {
+        byte[] payload = payloads[i & (SAMPLE_EVENTS - 1)];
+        return codec.compress(payload, payload.length);
+      });
+    }
+
+    System.out.println("Per batch of " + BATCH_SIZE + " messages:");
+    int batchIterations = Math.max(1, iterations / BATCH_SIZE);
+    Benchmarks.run("none", batchIterations, i -> batches[i % batches.length].length);
+    for (PayloadCodec.Type type : new PayloadCodec.Type[] {PayloadCodec.Type.GZIP, PayloadCodec.Type.ZSTD}) {
+      PayloadCodec codec = PayloadCodec.create(type);
+      Benchmarks.run(codec.contentEncoding(), batchIterations, i -> {
+        byte[] batch = batches[i % batches.length];
+        return codec.compress(batch, batch.length);
+      });
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package data_generator;
+
+import com.google.pubsub.v1.PubsubMessage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base of the offline sinks: counts the messages and payload bytes written
+ * and prints the generation rate every REPORT_INTERVAL_SECONDS and at
+ * shutdown, the same way the Pub/Sub sink reports its publish rate.
+ */
+abstract class CountingSink implements TransactionSink {
+
+  private static final long REPORT_INTERVAL_SECONDS = 10;
+
+  private final String name;
+  private final LongAdder messages = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+  private final ScheduledExecutorService reporter;
+  private final long startNanos = System.nanoTime();
+
+  private long reportedMessages;
+  private long reportedNanos = startNanos;
+
+  CountingSink(String name) {
+    this.name = name;
+    this.reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, name + "-sink-report");
+      thread.setDaemon(true);
+      return thread;
+    });
+    reporter.scheduleAtFixedRate(this::report, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public final boolean publish(PubsubMessage message, boolean fraud, long intendedNanos) {
+    try {
+      write(message, fraud);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    messages.increment();
+    bytes.add(message.getData().size());
+    return true;
+  }
+
+  /** Writes one message; called concurrently from all generation threads. */
+  protected abstract void write(PubsubMessage message, boolean fraud) throws IOException;
+
+  /** Pushes buffered output through; called at every report. */
+  protected void flush() throws IOException {}
+
+  /** Releases the sink's resources; called once at shutdown. */
+  protected void close() throws IOException {}
+
+  @Override
+  public void shutdown() {
+    reporter.shutdownNow();
+    try {
+      close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    System.out.printf("Wrote %d message(s) (%d payload bytes) to the %s sink, %.1f/s overall%n",
+        messageCount(), bytes.sum(), name, messageCount() / seconds);
+  }
+
+  long messageCount() {
+    return messages.sum();
+  }
+
+  private void report() {
+    try {
+      flush();
+    } catch (IOException e) {
+      System.err.println("Flushing the " + name + " sink failed: " + e);
+    }
+    long now = System.nanoTime();
+    long total = messageCount();
+    System.out.printf("Wrote %d message(s) to the %s sink, %.1f/s%n", total, name,
+        (total - reportedMessages) * 1e9 / (now - reportedNanos));
+    reportedMessages = total;
+    reportedNanos = now;
+  }
+}
@@ -0,0 +1,77 @@
+package data_generator;
+
+import com.google.gson.Gson;
+import com.google.protobuf.ByteString;
+import data_generator.TransactionGenerator.TransactionEvent;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Compares {@link TransactionJsonEncoder} with the previous serialization path
+ * (java.time timestamp formatting, reflective Gson into a String, then
+ * ByteString.copyFromUtf8), and the cached timestamp encoder with java.time.
+ *
+ * * Usage: java -cp target/TransactionGenerator.jar data_generator.EncoderBenchmark [ITERATIONS]
+ */
+public final class EncoderBenchmark {
+
+  private static final int SAMPLE_EVENTS = 4096;
+
+  /** Mirror of the original POJO, serialized by Gson through reflection. */
+  @SuppressWarnings("unused")
+  private static final class GsonTransactionEvent {
+    String credit_card_number;
+    String receiver;
+    double amount;
+    String ip_address;
+    String timestamp;
+  }
+
+  public static void main(String[] args) {
+    int iterations = Benchmarks.iterations(args, 2_000_000);
+
+    RandomGenerator random = RandomStreams.root(42);
+    CardCatalog cards = new CardCatalog(10000, random);
+    TransactionEvent[] events = new TransactionEvent[SAMPLE_EVENTS];
+    // Event times advance like a generation worker's simulated clock
+    long time = System.currentTimeMillis() - (1L << 32);
+    for (int i = 0; i < events.length; i++) {
+      time += random.nextLong(TransactionGenerator.MIN_TIME_INCREMENT_MS, TransactionGenerator.MAX_TIME_INCREMENT_MS + 1);
+      events[i] = new TransactionEvent(
+          random.nextInt(cards.size()),
+          random.nextInt(TransactionGenerator.MERCHANTS.size()),
+          random.nextLong(100, 50_001),
+          random.nextInt(),
+          time);
+    }
+
+    Gson gson = new Gson();
+    Benchmarks.run("gson + copyFromUtf8", iterations, i -> {
+      TransactionEvent event = events[i & (SAMPLE_EVENTS - 1)];
+      GsonTransactionEvent pojo = new GsonTransactionEvent();
+      pojo.credit_card_number = cards.cardNumber(event.cardIndex);
+      pojo.receiver = TransactionGenerator.MERCHANTS.name(event.receiverId);
+      pojo.amount = event.amountCents / 100.0;
+      pojo.ip_address = CardIpStore.format(event.ipAddress);
+      pojo.timestamp = TimestampEncoder.format(event.epochMilli);
+      return ByteString.copyFromUtf8(gson.toJson(pojo)).size();
+    });
+
+    // Both timestamp encoders format the same event times; with gaps of 1 s - 1 h between events the cached
+    // encoder rarely reuses its prefix, so this measures what the generator actually gets
+    Benchmarks.run("timestamp (java.time)", iterations,
+        i -> TimestampEncoder.format(events[i & (SAMPLE_EVENTS - 1)].epochMilli).length());
+    TimestampEncoder timestamps = new TimestampEncoder();
+    byte[] timestampBuffer = new byte[TimestampEncoder.MAX_LENGTH];
+    Benchmarks.run("timestamp (cached encoder)", iterations,
+        i -> timestamps.write(events[i & (SAMPLE_EVENTS - 1)].epochMilli, timestampBuffer, 0));
+
+    TransactionJsonEncoder encoder = new TransactionJsonEncoder(cards, TransactionGenerator.MERCHANTS);
+    Benchmarks.run("encoder (buffer only)", iterations,
+        i -> encoder.encode(events[i & (SAMPLE_EVENTS - 1)]));
+    Benchmarks.run("encoder + ByteString.copyFrom", iterations, i -> {
+      int length = encoder.encode(events[i & (SAMPLE_EVENTS - 1)]);
+      return ByteString.copyFrom(encoder.buffer(), 0, length).size();
+    });
+  }
+}
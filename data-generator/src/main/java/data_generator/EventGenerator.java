@@ -0,0 +1,22 @@
+package data_generator;
+
+/**
+ * A running source of transaction events (see --mode). Generation happens on
+ * threads owned by the implementation; the caller starts it, and stops it or
+ * waits for it to finish.
+ */
+interface EventGenerator {
+
+  /** Starts generating events. */
+  void start();
+
+  /** Asks all generation threads to stop. */
+  void stop();
+
+  /**
+   * Waits for all generation threads to finish. If the calling thread is
+   * interrupted, generation is stopped before the InterruptedException is
+   * propagated.
+   */
+  void awaitTermination() throws InterruptedException;
+}
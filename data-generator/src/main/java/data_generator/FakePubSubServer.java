@@ -0,0 +1,201 @@
+package data_generator;
+
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PubsubMessage;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process gRPC server implementing the Pub/Sub Publisher service
+ * (--fake-pubsub), for load-testing batching, ordering and the failure paths
+ * of the publishing layer locally at full speed. Publish requests are
+ * answered after a fixed latency, or failed with a configurable status code
+ * at a configurable rate, and every acknowledged message is appended to a
+ * bounded ack log.
+ *
+ * The real Publisher client talks to it over in-process channels obtained
+ * from {@link #channelProvider()}, used together with NoCredentials. Only
+ * the Publish method is served, described by hand since the generated gRPC
+ * stubs of the Pub/Sub API are not a dependency of the client library.
+ */
+final class FakePubSubServer {
+
+  // The Publish method of the google.pubsub.v1.Publisher service
+  static final MethodDescriptor<PublishRequest, PublishResponse> PUBLISH_METHOD =
+      MethodDescriptor.<PublishRequest, PublishResponse>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName(MethodDescriptor.generateFullMethodName("google.pubsub.v1.Publisher", "Publish"))
+          .setRequestMarshaller(ProtoUtils.marshaller(PublishRequest.getDefaultInstance()))
+          .setResponseMarshaller(ProtoUtils.marshaller(PublishResponse.getDefaultInstance()))
+          .build();
+
+  /** One acknowledged message, in the order the server acknowledged it. */
+  static final class Ack {
+    final String messageId;
+    final String orderingKey;
+    final int dataBytes;
+    final long ackNanos;
+
+    Ack(String messageId, String orderingKey, int dataBytes, long ackNanos) {
+      this.messageId = messageId;
+      this.orderingKey = orderingKey;
+      this.dataBytes = dataBytes;
+      this.ackNanos = ackNanos;
+    }
+  }
+
+  private final long latencyMicros;
+  private final double errorRate;
+  private final Status.Code errorCode;
+
+  private final String name = InProcessServerBuilder.generateName();
+  private final List<ManagedChannel> channels = new CopyOnWriteArrayList<>();
+  private final ScheduledExecutorService delayer;
+  private Server server;
+
+  // Ack log: a ring of the most recent acknowledgements, guarded by itself
+  private final Ack[] ackLog;
+  private long ackLogNext;
+
+  private final AtomicLong messageIds = new AtomicLong();
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong failedRequests = new AtomicLong();
+  private final AtomicLong acknowledged = new AtomicLong();
+
+  /**
+   * @param latencyMicros delay before each publish request is answered
+   * @param errorRate fraction of publish requests that fail, in [0, 1]
+   * @param errorCode status of the failed requests
+   * @param ackLogCapacity number of most recent acknowledgements kept in the ack log
+   */
+  FakePubSubServer(long latencyMicros, double errorRate, Status.Code errorCode, int ackLogCapacity) {
+    this.latencyMicros = latencyMicros;
+    this.errorRate = errorRate;
+    this.errorCode = errorCode;
+    this.ackLog = new Ack[ackLogCapacity];
+    this.delayer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "fake-pubsub-latency");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /** Starts serving under a unique in-process name. */
+  FakePubSubServer start() throws IOException {
+    ServerServiceDefinition service = ServerServiceDefinition.builder(PUBLISH_METHOD.getServiceName())
+        .addMethod(PUBLISH_METHOD, ServerCalls.asyncUnaryCall(this::publish))
+        .build();
+    server = InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+    return this;
+  }
+
+  /**
+   * A channel provider for one Publisher. Every call opens a new in-process
+   * channel, so each Publisher has its own, as it would against Pub/Sub;
+   * the channels are closed by {@link #shutdown()}.
+   */
+  TransportChannelProvider channelProvider() {
+    ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    channels.add(channel);
+    return FixedTransportChannelProvider.create(GrpcTransportChannel.create(channel));
+  }
+
+  private void publish(PublishRequest request, StreamObserver<PublishResponse> responseObserver) {
+    requests.incrementAndGet();
+    if (latencyMicros == 0) {
+      respond(request, responseObserver);
+    } else {
+      delayer.schedule(() -> respond(request, responseObserver), latencyMicros, TimeUnit.MICROSECONDS);
+    }
+  }
+
+  private void respond(PublishRequest request, StreamObserver<PublishResponse> responseObserver) {
+    if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+      failedRequests.incrementAndGet();
+      responseObserver.onError(
+          Status.fromCode(errorCode).withDescription("Injected by FakePubSubServer").asRuntimeException());
+      return;
+    }
+
+    PublishResponse.Builder response = PublishResponse.newBuilder();
+    long now = System.nanoTime();
+    synchronized (ackLog) {
+      for (PubsubMessage message : request.getMessagesList()) {
+        String messageId = Long.toString(messageIds.incrementAndGet());
+        response.addMessageIds(messageId);
+        if (ackLog.length > 0) {
+          ackLog[(int) (ackLogNext++ % ackLog.length)] =
+              new Ack(messageId, message.getOrderingKey(), message.getData().size(), now);
+        }
+      }
+    }
+    acknowledged.addAndGet(request.getMessagesCount());
+    responseObserver.onNext(response.build());
+    responseObserver.onCompleted();
+  }
+
+  /** The retained acknowledgements, oldest first. */
+  List<Ack> ackLog() {
+    synchronized (ackLog) {
+      long start = Math.max(0, ackLogNext - ackLog.length);
+      List<Ack> acks = new ArrayList<>((int) (ackLogNext - start));
+      for (long i = start; i < ackLogNext; i++) {
+        acks.add(ackLog[(int) (i % ackLog.length)]);
+      }
+      return acks;
+    }
+  }
+
+  // --- Metrics ---
+
+  long requestCount() {
+    return requests.get();
+  }
+
+  long failedRequestCount() {
+    return failedRequests.get();
+  }
+
+  long acknowledgedCount() {
+    return acknowledged.get();
+  }
+
+  String summary() {
+    return String.format("Fake Pub/Sub: %d message(s) acknowledged in %d request(s), %d request(s) failed with %s",
+        acknowledgedCount(), requestCount(), failedRequestCount(), errorCode);
+  }
+
+  /** Closes the channels handed out and stops the server. */
+  void shutdown() throws InterruptedException {
+    for (ManagedChannel channel : channels) {
+      channel.shutdown();
+    }
+    if (server != null) {
+      server.shutdown();
+      server.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    delayer.shutdownNow();
+  }
+}
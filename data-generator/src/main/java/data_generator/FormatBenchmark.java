@@ -0,0 +1,39 @@
+package data_generator;
+
+import data_generator.TransactionGenerator.TransactionEvent;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Compares the encoding time and message size of the payload formats
+ * (--format json|proto|avro) on the same events.
+ *
+ * * Usage: java -cp target/TransactionGenerator.jar data_generator.FormatBenchmark [ITERATIONS]
+ */
+public final class FormatBenchmark {
+
+  private static final int SAMPLE_EVENTS = 4096;
+
+  public static void main(String[] args) {
+    int iterations = Benchmarks.iterations(args, 2_000_000);
+
+    RandomGenerator random = RandomStreams.root(42);
+    CardCatalog cards = new CardCatalog(10000, random);
+    TransactionSampler sampler = new TransactionSampler(random, new CardIpStore(cards.size()));
+    TransactionEvent[] events = new TransactionEvent[SAMPLE_EVENTS];
+    long time = System.currentTimeMillis();
+    for (int i = 0; i < events.length; i++) {
+      int cardIndex = random.nextInt(cards.size());
+      time += random.nextLong(TransactionGenerator.MIN_TIME_INCREMENT_MS, TransactionGenerator.MAX_TIME_INCREMENT_MS);
+      int receiver = sampler.getRandomReceiver();
+      events[i] = new TransactionEvent(cardIndex, receiver, sampler.getRandomAmount(receiver),
+          sampler.getIpForCard(cardIndex), time);
+    }
+
+    for (TransactionEncoder.Format format : TransactionEncoder.Format.values()) {
+      TransactionEncoder encoder = TransactionEncoder.create(format, cards, TransactionGenerator.MERCHANTS);
+      Benchmarks.run(format.name().toLowerCase(), iterations,
+          i -> encoder.encode(events[i & (SAMPLE_EVENTS - 1)]));
+    }
+  }
+}
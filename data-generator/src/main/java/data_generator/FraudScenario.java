@@ -0,0 +1,30 @@
+package data_generator;
+
+/**
+ * A multi-step fraud scenario: a fixed sequence of transactions made with a
+ * compromised card from one new IP address. Scenarios are drawn from a
+ * {@link FraudScenarioRegistry}; the generation modes run the steps, so an
+ * implementation only describes them.
+ *
+ * Implementations are shared by all generation threads and must be
+ * stateless; randomness comes from the caller's sampler.
+ */
+interface FraudScenario {
+
+  /** Name of the scenario, as registered. */
+  String name();
+
+  int stepCount();
+
+  /** Simulated milliseconds between the previous step (or the start of the scenario) and this step. */
+  long delayMillis(int step);
+
+  /** Tag logged with the step's event; fraud tags contain "FRAUD". */
+  String tag(int step);
+
+  /** Draws the receiver of the step. */
+  int receiver(int step, TransactionSampler sampler);
+
+  /** Draws the amount of the step, in cents, for the receiver drawn for it. */
+  long amountCents(int step, int receiver, TransactionSampler sampler);
+}
@@ -0,0 +1,133 @@
+package data_generator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * The fraud scenarios to inject, each with a relative weight. The generator
+ * loads them from the bundled fraud-scenarios.properties, or from a file given
+ * with --fraud-scenarios, so scenarios can be added without code changes;
+ * scenarios written in Java can be registered alongside them.
+ *
+ * Registration happens at startup; afterwards the registry is only read and
+ * is shared by all generation threads.
+ */
+final class FraudScenarioRegistry {
+
+  static final String DEFAULT_RESOURCE = "/fraud-scenarios.properties";
+
+  private static final String STEPS_SUFFIX = ".steps";
+  private static final String WEIGHT_SUFFIX = ".weight";
+
+  private FraudScenario[] scenarios = new FraudScenario[0];
+  private double[] weights = new double[0];
+  // Running totals of the weights, for sampling
+  private double[] cumulativeWeights = new double[0];
+
+  void register(FraudScenario scenario, double weight) {
+    if (!(weight > 0) || Double.isInfinite(weight)) {
+      throw new IllegalArgumentException(
+          "Weight of fraud scenario '" + scenario.name() + "' must be positive, got: " + weight);
+    }
+    int n = scenarios.length;
+    scenarios = Arrays.copyOf(scenarios, n + 1);
+    weights = Arrays.copyOf(weights, n + 1);
+    cumulativeWeights = Arrays.copyOf(cumulativeWeights, n + 1);
+    scenarios[n] = scenario;
+    weights[n] = weight;
+    cumulativeWeights[n] = (n == 0 ? 0 : cumulativeWeights[n - 1]) + weight;
+  }
+
+  /** Draws a scenario with probability proportional to its weight. */
+  FraudScenario sample(RandomGenerator random) {
+    double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+    for (int i = 0; i < cumulativeWeights.length - 1; i++) {
+      if (target < cumulativeWeights[i]) {
+        return scenarios[i];
+      }
+    }
+    return scenarios[scenarios.length - 1];
+  }
+
+  int size() {
+    return scenarios.length;
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner joiner = new StringJoiner(", ");
+    for (int i = 0; i < scenarios.length; i++) {
+      joiner.add(scenarios[i] + " weight " + weights[i]);
+    }
+    return joiner.toString();
+  }
+
+  // --- Loading ---
+
+  /** Loads the scenarios from {@code path}, or the bundled ones if it is null. */
+  static FraudScenarioRegistry load(String path) throws IOException {
+    Properties properties = new Properties();
+    if (path != null) {
+      try (Reader reader = Files.newBufferedReader(Path.of(path), StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      }
+    } else {
+      try (InputStream in = FraudScenarioRegistry.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+        if (in == null) {
+          throw new IOException("Missing resource " + DEFAULT_RESOURCE);
+        }
+        properties.load(in);
+      }
+    }
+    return fromProperties(properties);
+  }
+
+  /**
+   * Compiles every scenario defined by a {@code <name>.steps} property, with
+   * the weight in {@code <name>.weight} (default 1). Scenarios are registered
+   * in name order, so seeded runs draw them reproducibly.
+   */
+  static FraudScenarioRegistry fromProperties(Properties properties) {
+    Map<String, String> steps = new TreeMap<>();
+    Map<String, Double> weights = new TreeMap<>();
+    for (String key : properties.stringPropertyNames()) {
+      String value = properties.getProperty(key).trim();
+      if (key.endsWith(STEPS_SUFFIX)) {
+        steps.put(key.substring(0, key.length() - STEPS_SUFFIX.length()), value);
+      } else if (key.endsWith(WEIGHT_SUFFIX)) {
+        try {
+          weights.put(key.substring(0, key.length() - WEIGHT_SUFFIX.length()), Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException(key + " must be a number, got: '" + value + "'");
+        }
+      } else {
+        throw new IllegalArgumentException("Unknown fraud scenario property: " + key);
+      }
+    }
+    for (String name : weights.keySet()) {
+      if (!steps.containsKey(name)) {
+        throw new IllegalArgumentException("Fraud scenario '" + name + "' has a weight but no steps.");
+      }
+    }
+    if (steps.isEmpty()) {
+      throw new IllegalArgumentException("No fraud scenarios are defined.");
+    }
+
+    FraudScenarioRegistry registry = new FraudScenarioRegistry();
+    for (Map.Entry<String, String> scenario : steps.entrySet()) {
+      String name = scenario.getKey();
+      registry.register(ScenarioPlan.compile(name, scenario.getValue()), weights.getOrDefault(name, 1.0));
+    }
+    return registry;
+  }
+}
@@ -0,0 +1,79 @@
+package data_generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator.SplittableGenerator;
+
+/**
+ * Runs N {@link GeneratorWorker}s on their own threads. The cards are split
+ * into N disjoint shards (card i goes to worker i % N), so every ordering key
+ * is only ever published by a single worker.
+ */
+final class GenerationEngine implements EventGenerator {
+
+  private final List<GeneratorWorker> workers;
+  private final List<Thread> threads = new ArrayList<>();
+
+  /**
+   * @param rate target events per second across all workers, split evenly
+   *     between them; 0 means unlimited
+   * @param encoders creates the message encoder of each worker
+   * @param scenarios the fraud scenarios the workers inject
+   * @param popularity skew of the cards and merchants the workers pick
+   * @param stepTimeScale if positive, scenario steps are spaced by their delay divided by this in wall-clock
+   *     time; 0 sends them back to back
+   * @param rootRandom stream from which each worker's own stream is split, in worker order
+   */
+  GenerationEngine(int workerCount, CardCatalog cards, CardIpStore cardIps, TransactionSink sink,
+      Supplier<TransactionMessageEncoder> encoders, FraudScenarioRegistry scenarios, Popularity popularity,
+      double stepTimeScale, double rate, SplittableGenerator rootRandom, long simulatedStartTime) {
+    if (workerCount > cards.size()) {
+      throw new IllegalArgumentException(
+          "Cannot run " + workerCount + " workers over " + cards.size() + " cards.");
+    }
+
+    this.workers = new ArrayList<>(workerCount);
+    for (int i = 0; i < workerCount; i++) {
+      RateController rateController =
+          rate > 0 ? RateController.perSecond(rate / workerCount) : RateController.unlimited();
+      workers.add(new GeneratorWorker(
+          i, workerCount, cards, cardIps, sink, encoders.get(), scenarios, popularity, stepTimeScale,
+          rateController, rootRandom.split(), simulatedStartTime));
+    }
+  }
+
+  int workerCount() {
+    return workers.size();
+  }
+
+  /** Starts one thread per worker. */
+  @Override
+  public void start() {
+    for (GeneratorWorker worker : workers) {
+      Thread thread = new Thread(worker, "generator-worker-" + worker.workerId());
+      threads.add(thread);
+      thread.start();
+    }
+  }
+
+  /** Interrupts all workers. */
+  @Override
+  public void stop() {
+    for (Thread thread : threads) {
+      thread.interrupt();
+    }
+  }
+
+  @Override
+  public void awaitTermination() throws InterruptedException {
+    try {
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException e) {
+      stop();
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,498 @@
+package data_generator;
+
+import io.grpc.Status;
+
+/**
+ * Command line options for {@link TransactionGenerator}.
+ *
+ * * Positional arguments: <PROJECT_ID> <REGION>
+ * * Optional flags are given as --name=value after the positional arguments.
+ */
+final class GeneratorOptions {
+
+  static final String USAGE = """
+      Usage: java TransactionGenerator <PROJECT_ID> <REGION> [options]
+             java TransactionGenerator --sink=null|ring|ndjson [options]
+             java TransactionGenerator --fake-pubsub [options]
+        --mode=workers|virtual-cards|timelines|replay
+                                      Generation mode (default: workers)
+        --workers=N                   Worker threads in workers mode, replay threads in replay mode (default: 1)
+        --rate=EVENTS_PER_SEC|max     Target rate in workers and timelines modes (default: 1)
+        --tape=PATH                   Tape replayed in replay mode
+        --replay-speed=X|max          Replay speed relative to the recording (default: 1)
+        --active-cards=N              Concurrently live cards in virtual-cards and timelines modes (default: all cards)
+        --time-scale=X                Simulated time speed-up in virtual-cards mode (default: 1)
+        --cards=N                     Number of simulated cards (default: 10000)
+        --fraud-step-time-scale=X|off Space scenario steps in workers mode by their delay / X of wall-clock
+                                      time instead of sending them back to back (default: off)
+        --fraud-scenarios=PATH        Fraud scenario definitions (default: bundled fraud-scenarios.properties)
+        --card-zipf=S                 Zipf exponent of card popularity in workers mode; 0 is uniform (default: 0)
+        --merchant-zipf=S             Zipf exponent of merchant popularity; 0 is uniform (default: 0)
+        --seed=N                      Seed for all random streams (default: random, printed)
+        --start-time=EPOCH_MILLIS     Start of the simulated clock (default: ~87 days ago)
+        --publishers=N                Publisher instances, cards split by ordering key hash (default: 1)
+        --max-outstanding-messages=N  Messages in flight before backpressure applies (default: 100000)
+        --max-outstanding-bytes=N     Bytes in flight before backpressure applies (default: 104857600)
+        --backpressure=block|shed|slow
+                                      What to do when the in-flight limit is reached (default: block)
+        --sink=pubsub|null|ring|ndjson|tape
+                                      Where messages go; all but pubsub work offline (default: pubsub)
+        --output=PATH|-               File written by the ndjson or tape sink, '-' for stdout (default: -)
+        --ring-capacity=N             Messages kept by the ring sink (default: 65536)
+        --format=json|proto|avro      Message payload format (default: json)
+        --payload-codec=none|gzip|zstd
+                                      Compress each message payload, marked by a content-encoding attribute (default: none)
+        --grpc-compression-threshold=BYTES
+                                      Enable gRPC compression for publish requests of at least BYTES (default: off)
+        --publisher-profile=default|latency|balanced|throughput
+                                      Publisher batching/flow-control preset (default: default)
+        --fake-pubsub                 Publish to an in-process fake Pub/Sub server instead of Google Cloud
+        --fake-pubsub-latency-ms=X    Delay before the fake server answers each publish request (default: 0)
+        --fake-pubsub-error-rate=P    Fraction of publish requests the fake server fails (default: 0)
+        --fake-pubsub-error-code=CODE gRPC status of the failed requests (default: UNAVAILABLE)
+        --autotune                    Sweep Publisher batching settings, report the best and exit
+        --autotune-trial-seconds=N    Duration of each auto-tune trial (default: 10)
+        --autotune-target-p99-ms=X    p99 publish latency the auto-tuner must meet (default: 100)""";
+
+  /** How events are generated. */
+  enum Mode {
+    // Sharded worker threads, each looping over random cards of its shard at a target rate
+    WORKERS,
+    // One virtual thread per active card, each running its own spending life-cycle
+    VIRTUAL_CARDS,
+    // One thread merging the timelines of all active cards into a time-ordered stream
+    TIMELINES,
+    // Republish a tape recorded with --sink=tape
+    REPLAY
+  }
+
+  String projectId;
+  String region;
+
+  Mode mode = Mode.WORKERS;
+
+  // Number of generation workers, each owning a disjoint shard of the cards
+  int workers = 1;
+
+  // Tape republished in replay mode
+  String tape;
+
+  // Replay speed relative to the recording; 0 means unlimited
+  double replaySpeed = 1;
+
+  // Workers mode: wall-clock spacing of scenario steps is their delay divided by this; 0 sends them back to back
+  double fraudStepTimeScale;
+
+  // Fraud scenario definitions; null uses the bundled ones
+  String fraudScenarios;
+
+  // Zipf exponents of card (workers mode) and merchant popularity; 0 means uniform
+  double cardZipf;
+  double merchantZipf;
+
+  // Number of simulated cards
+  int cards = 10000;
+
+  // Target number of events per second across all workers; 0 means unlimited
+  double rate = 1.0;
+
+  // Cards simulated concurrently in virtual-cards mode; null means all cards
+  Integer activeCards;
+
+  // Simulated milliseconds per real millisecond in virtual-cards mode
+  double timeScale = 1.0;
+
+  // Seed for all random streams; null picks a fresh seed (printed at startup)
+  Long seed;
+
+  // Start of the simulated clock in epoch milliseconds; null starts in the recent past
+  Long startTime;
+
+  // Number of Publisher instances the cards are spread over
+  int publishers = 1;
+
+  // Messages and bytes handed to the publishers but not yet acknowledged, before backpressure applies
+  long maxOutstandingMessages = 100_000;
+  long maxOutstandingBytes = 100L * 1024 * 1024;
+
+  OutstandingLimiter.Policy backpressure = OutstandingLimiter.Policy.BLOCK;
+
+  // Destination of the generated messages
+  TransactionSink.Type sink = TransactionSink.Type.PUBSUB;
+
+  // Output of the ndjson sink; "-" is stdout
+  String output = "-";
+
+  // Messages retained by the ring sink
+  int ringCapacity = 65536;
+
+  // Serialization of the message payload
+  TransactionEncoder.Format format = TransactionEncoder.Format.JSON;
+
+  // Per-message payload compression
+  PayloadCodec.Type payloadCodec = PayloadCodec.Type.NONE;
+
+  // Minimum publish request size for gRPC transport compression; null disables it
+  Long grpcCompressionThreshold;
+
+  // Batching and flow-control preset for the Publisher
+  PublisherProfile publisherProfile = PublisherProfile.DEFAULT;
+
+  // Publish to an in-process fake Pub/Sub server
+  boolean fakePubSub;
+
+  // Fake server: response delay in milliseconds, failed request fraction and their status
+  double fakePubSubLatencyMillis;
+  double fakePubSubErrorRate;
+  Status.Code fakePubSubErrorCode = Status.Code.UNAVAILABLE;
+
+  // Run the Publisher auto-tuner instead of generating
+  boolean autotune;
+
+  // Duration of each auto-tune trial in seconds
+  int autotuneTrialSeconds = 10;
+
+  // p99 publish latency target for the auto-tuner in milliseconds
+  double autotuneTargetP99Millis = 100;
+
+  private GeneratorOptions() {}
+
+  /**
+   * Parses the command line. Throws IllegalArgumentException with a readable
+   * message if an argument is missing or malformed.
+   */
+  static GeneratorOptions parse(String[] args) {
+    GeneratorOptions options = new GeneratorOptions();
+    int positional = 0;
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        if (positional == 0) {
+          options.projectId = arg;
+        } else if (positional == 1) {
+          options.region = arg;
+        } else {
+          throw new IllegalArgumentException("Unexpected argument: " + arg);
+        }
+        positional++;
+        continue;
+      }
+
+      int eq = arg.indexOf('=');
+      String name = eq < 0 ? arg.substring(2) : arg.substring(2, eq);
+      String value = eq < 0 ? "" : arg.substring(eq + 1);
+      switch (name) {
+        case "mode":
+          options.mode = parseMode(value);
+          break;
+        case "active-cards":
+          options.activeCards = parsePositiveInt(name, value);
+          break;
+        case "time-scale":
+          options.timeScale = parsePositiveDouble(name, value);
+          break;
+        case "tape":
+          options.tape = parseNonEmpty(name, value);
+          break;
+        case "replay-speed":
+          options.replaySpeed = "max".equals(value) ? 0 : parsePositiveDouble(name, value);
+          break;
+        case "workers":
+          options.workers = parsePositiveInt(name, value);
+          break;
+        case "cards":
+          options.cards = parsePositiveInt(name, value);
+          break;
+        case "rate":
+          options.rate = "max".equals(value) ? 0 : parsePositiveDouble(name, value);
+          break;
+        case "fraud-step-time-scale":
+          options.fraudStepTimeScale = "off".equals(value) ? 0 : parsePositiveDouble(name, value);
+          break;
+        case "fraud-scenarios":
+          options.fraudScenarios = parseNonEmpty(name, value);
+          break;
+        case "card-zipf":
+          options.cardZipf = parseNonNegativeDouble(name, value);
+          break;
+        case "merchant-zipf":
+          options.merchantZipf = parseNonNegativeDouble(name, value);
+          break;
+        case "seed":
+          options.seed = parseLong(name, value);
+          break;
+        case "start-time":
+          options.startTime = parseLong(name, value);
+          break;
+        case "publishers":
+          options.publishers = parsePositiveInt(name, value);
+          break;
+        case "max-outstanding-messages":
+          options.maxOutstandingMessages = parsePositiveLong(name, value);
+          break;
+        case "max-outstanding-bytes":
+          options.maxOutstandingBytes = parsePositiveLong(name, value);
+          break;
+        case "backpressure":
+          options.backpressure = parseBackpressure(value);
+          break;
+        case "sink":
+          options.sink = parseSink(value);
+          break;
+        case "output":
+          options.output = parseNonEmpty(name, value);
+          break;
+        case "ring-capacity":
+          options.ringCapacity = parsePositiveInt(name, value);
+          break;
+        case "format":
+          options.format = parseFormat(value);
+          break;
+        case "payload-codec":
+          options.payloadCodec = parsePayloadCodec(value);
+          break;
+        case "grpc-compression-threshold":
+          options.grpcCompressionThreshold = parseNonNegativeLong(name, value);
+          break;
+        case "publisher-profile":
+          options.publisherProfile = parsePublisherProfile(value);
+          break;
+        case "fake-pubsub":
+          options.fakePubSub = true;
+          break;
+        case "fake-pubsub-latency-ms":
+          options.fakePubSubLatencyMillis = parseNonNegativeDouble(name, value);
+          break;
+        case "fake-pubsub-error-rate":
+          options.fakePubSubErrorRate = parseFraction(name, value);
+          break;
+        case "fake-pubsub-error-code":
+          options.fakePubSubErrorCode = parseStatusCode(name, value);
+          break;
+        case "autotune":
+          options.autotune = true;
+          break;
+        case "autotune-trial-seconds":
+          options.autotuneTrialSeconds = parsePositiveInt(name, value);
+          break;
+        case "autotune-target-p99-ms":
+          options.autotuneTargetP99Millis = parsePositiveDouble(name, value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option: --" + name);
+      }
+    }
+
+    if (options.autotune && options.sink != TransactionSink.Type.PUBSUB) {
+      throw new IllegalArgumentException("--autotune publishes to Pub/Sub and requires --sink=pubsub.");
+    }
+    if (positional < 2 && !options.fakePubSub && options.sink == TransactionSink.Type.PUBSUB) {
+      throw new IllegalArgumentException("PROJECT_ID and REGION must be provided as command-line arguments.");
+    }
+    if (options.sink == TransactionSink.Type.NDJSON
+        && (options.format != TransactionEncoder.Format.JSON || options.payloadCodec != PayloadCodec.Type.NONE)) {
+      throw new IllegalArgumentException("--sink=ndjson requires --format=json and --payload-codec=none.");
+    }
+    if (options.sink == TransactionSink.Type.TAPE && "-".equals(options.output)) {
+      throw new IllegalArgumentException("--sink=tape requires --output=PATH.");
+    }
+    if ((options.mode == Mode.REPLAY) != (options.tape != null)) {
+      throw new IllegalArgumentException("--tape is required by, and only used in, --mode=replay.");
+    }
+    if (options.cardZipf > 0 && options.mode != Mode.WORKERS) {
+      // The other modes give every active card its own timeline, so there is no per-event card choice to skew
+      throw new IllegalArgumentException("--card-zipf is only supported in --mode=workers.");
+    }
+    if (options.fakePubSub && options.sink != TransactionSink.Type.PUBSUB) {
+      throw new IllegalArgumentException("--fake-pubsub requires --sink=pubsub.");
+    }
+    return options;
+  }
+
+  private static Mode parseMode(String value) {
+    switch (value) {
+      case "workers":
+        return Mode.WORKERS;
+      case "virtual-cards":
+        return Mode.VIRTUAL_CARDS;
+      case "timelines":
+        return Mode.TIMELINES;
+      case "replay":
+        return Mode.REPLAY;
+      default:
+        throw new IllegalArgumentException(
+            "--mode must be 'workers', 'virtual-cards', 'timelines' or 'replay', got: '" + value + "'");
+    }
+  }
+
+  private static OutstandingLimiter.Policy parseBackpressure(String value) {
+    switch (value) {
+      case "block":
+        return OutstandingLimiter.Policy.BLOCK;
+      case "shed":
+        return OutstandingLimiter.Policy.SHED;
+      case "slow":
+        return OutstandingLimiter.Policy.SLOW;
+      default:
+        throw new IllegalArgumentException("--backpressure must be 'block', 'shed' or 'slow', got: '" + value + "'");
+    }
+  }
+
+  private static TransactionSink.Type parseSink(String value) {
+    switch (value) {
+      case "pubsub":
+        return TransactionSink.Type.PUBSUB;
+      case "null":
+        return TransactionSink.Type.NULL;
+      case "ring":
+        return TransactionSink.Type.RING;
+      case "ndjson":
+        return TransactionSink.Type.NDJSON;
+      case "tape":
+        return TransactionSink.Type.TAPE;
+      default:
+        throw new IllegalArgumentException(
+            "--sink must be 'pubsub', 'null', 'ring', 'ndjson' or 'tape', got: '" + value + "'");
+    }
+  }
+
+  private static TransactionEncoder.Format parseFormat(String value) {
+    switch (value) {
+      case "json":
+        return TransactionEncoder.Format.JSON;
+      case "proto":
+        return TransactionEncoder.Format.PROTO;
+      case "avro":
+        return TransactionEncoder.Format.AVRO;
+      default:
+        throw new IllegalArgumentException("--format must be 'json', 'proto' or 'avro', got: '" + value + "'");
+    }
+  }
+
+  private static PayloadCodec.Type parsePayloadCodec(String value) {
+    switch (value) {
+      case "none":
+        return PayloadCodec.Type.NONE;
+      case "gzip":
+        return PayloadCodec.Type.GZIP;
+      case "zstd":
+        return PayloadCodec.Type.ZSTD;
+      default:
+        throw new IllegalArgumentException("--payload-codec must be 'none', 'gzip' or 'zstd', got: '" + value + "'");
+    }
+  }
+
+  private static PublisherProfile parsePublisherProfile(String value) {
+    switch (value) {
+      case "default":
+        return PublisherProfile.DEFAULT;
+      case "latency":
+        return PublisherProfile.LATENCY;
+      case "balanced":
+        return PublisherProfile.BALANCED;
+      case "throughput":
+        return PublisherProfile.THROUGHPUT;
+      default:
+        throw new IllegalArgumentException(
+            "--publisher-profile must be 'default', 'latency', 'balanced' or 'throughput', got: '" + value + "'");
+    }
+  }
+
+  private static Status.Code parseStatusCode(String name, String value) {
+    try {
+      Status.Code code = Status.Code.valueOf(value.toUpperCase());
+      if (code != Status.Code.OK) {
+        return code;
+      }
+    } catch (IllegalArgumentException e) {
+      // Fall through to the error below
+    }
+    throw new IllegalArgumentException("--" + name + " must be a gRPC status code other than OK, got: '" + value + "'");
+  }
+
+  private static String parseNonEmpty(String name, String value) {
+    if (value.isEmpty()) {
+      throw new IllegalArgumentException("--" + name + " must not be empty");
+    }
+    return value;
+  }
+
+  private static int parsePositiveInt(String name, String value) {
+    try {
+      int parsed = Integer.parseInt(value);
+      if (parsed > 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // Fall through to the error below
+    }
+    throw new IllegalArgumentException("--" + name + " must be a positive integer, got: '" + value + "'");
+  }
+
+  private static long parsePositiveLong(String name, String value) {
+    try {
+      long parsed = Long.parseLong(value);
+      if (parsed > 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // Fall through to the error below
+    }
+    throw new IllegalArgumentException("--" + name + " must be a positive integer, got: '" + value + "'");
+  }
+
+  private static long parseNonNegativeLong(String name, String value) {
+    try {
+      long parsed = Long.parseLong(value);
+      if (parsed >= 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // Fall through to the error below
+    }
+    throw new IllegalArgumentException("--" + name + " must be a non-negative integer, got: '" + value + "'");
+  }
+
+  private static long parseLong(String name, String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("--" + name + " must be an integer, got: '" + value + "'");
+    }
+  }
+
+  private static double parsePositiveDouble(String name, String value) {
+    try {
+      double parsed = Double.parseDouble(value);
+      if (parsed > 0 && !Double.isInfinite(parsed)) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // Fall through to the error below
+    }
+    throw new IllegalArgumentException("--" + name + " must be a positive number, got: '" + value + "'");
+  }
+
+  private static double parseNonNegativeDouble(String name, String value) {
+    try {
+      double parsed = Double.parseDouble(value);
+      if (parsed >= 0 && !Double.isInfinite(parsed)) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // Fall through to the error below
+    }
+    throw new IllegalArgumentException("--" + name + " must be a non-negative number, got: '" + value + "'");
+  }
+
+  private static double parseFraction(String name, String value) {
+    try {
+      double parsed = Double.parseDouble(value);
+      if (parsed >= 0 && parsed <= 1) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // Fall through to the error below
+    }
+    throw new IllegalArgumentException("--" + name + " must be a number between 0 and 1, got: '" + value + "'");
+  }
+}
@@ -0,0 +1,239 @@
+package data_generator;
+
+import data_generator.TransactionGenerator.TransactionEvent;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+
+/**
+ * A single generation loop. Each worker owns a disjoint shard of the cards
+ * (every index i with i % workerCount == workerId) together with its own
+ * random number generator and simulated clock. The sticky IP store is shared,
+ * but each worker only touches the entries of its own cards, so workers need
+ * no locks.
+ *
+ * Because a card belongs to exactly one worker, all of its events are
+ * published from one thread, which keeps the per-card (ordering key) order.
+ *
+ * With --fraud-step-time-scale, the steps of a fraud scenario are released at
+ * their delays in wall-clock time (divided by the scale) from a per-worker
+ * {@link TimingWheel}, interleaved with the normal traffic, instead of back to
+ * back. The worker polls the wheel between events, so any number of scenarios
+ * can be in flight without a thread each.
+ */
+final class GeneratorWorker implements Runnable {
+
+  // Timing wheel resolution and size; deadlines past one revolution (~4 s) wait extra rounds
+  private static final long WHEEL_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final int WHEEL_SLOTS = 4096;
+
+  /** A fraud scenario in flight on the timing wheel, waiting for its next step. */
+  private static final class ScenarioRun extends TimingWheel.Timer {
+    int cardIndex;
+    int fraudIp;
+    FraudScenario scenario;
+    int step;
+    long stepTime; // Simulated time of the next step
+  }
+
+  private final int workerId;
+  private final int workerCount;
+  private final CardCatalog cards;
+  private final int shardSize;
+  private final TransactionSink sink;
+  private final RateController rateController;
+  private final FraudScenarioRegistry scenarios;
+
+  // Per-worker message encoder with reusable output buffers
+  private final TransactionMessageEncoder encoder;
+
+  // Per-worker random stream, split from the seeded root (no contention with other workers)
+  private final RandomGenerator random;
+  private final TransactionSampler sampler;
+  private final ZipfSampler cardPopularity; // Within the shard; null for uniform
+
+  // Simulated clock for this shard (as epoch milliseconds)
+  private long simulatedCurrentTime;
+
+  // Wall-clock spacing of scenario steps; all null (and the scale 0) when steps are sent back to back
+  private final double stepTimeScale;
+  private final TimingWheel<ScenarioRun> wheel;
+  private final ArrayDeque<ScenarioRun> freeRuns;
+  // Shard-local indexes of the cards with a scenario in flight, which are left alone until it ends
+  private final BitSet busyCards;
+  private int busyCardCount;
+
+  GeneratorWorker(int workerId, int workerCount, CardCatalog cards, CardIpStore cardIps, TransactionSink sink,
+      TransactionMessageEncoder encoder, FraudScenarioRegistry scenarios, Popularity popularity,
+      double stepTimeScale, RateController rateController, RandomGenerator random, long simulatedStartTime) {
+    this.workerId = workerId;
+    this.workerCount = workerCount;
+    this.cards = cards;
+    this.shardSize = (cards.size() - workerId + workerCount - 1) / workerCount;
+    this.sink = sink;
+    this.rateController = rateController;
+    this.scenarios = scenarios;
+    this.encoder = encoder;
+    this.random = random;
+    this.sampler = new TransactionSampler(random, cardIps, popularity);
+    this.cardPopularity = popularity.cards(shardSize);
+    this.simulatedCurrentTime = simulatedStartTime;
+    this.stepTimeScale = stepTimeScale;
+    if (stepTimeScale > 0) {
+      this.wheel = new TimingWheel<>(WHEEL_TICK_NANOS, WHEEL_SLOTS, System.nanoTime());
+      this.freeRuns = new ArrayDeque<>();
+      this.busyCards = new BitSet(shardSize);
+    } else {
+      this.wheel = null;
+      this.freeRuns = null;
+      this.busyCards = null;
+    }
+  }
+
+  int workerId() {
+    return workerId;
+  }
+
+  // --- Random Data Helpers ---
+
+  private int getRandomCard() {
+    // Pick a card index from this worker's shard
+    int position = cardPopularity != null ? cardPopularity.sample(random) : random.nextInt(shardSize);
+    return workerId + workerCount * position;
+  }
+
+  // --- Generation Loop ---
+
+  @Override
+  public void run() {
+    try {
+      rateController.start();
+      while (!Thread.currentThread().isInterrupted()) {
+        generateOnce();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt(); // Restore the interrupted status
+    }
+  }
+
+  /**
+   * Runs one iteration of the generator: either a single normal transaction
+   * or a complete multi-step fraud scenario for one card of this shard.
+   * Every event waits for its own slot from the rate controller.
+   */
+  void generateOnce() throws InterruptedException {
+    // Scenario steps that have come due go first
+    if (wheel != null) {
+      ScenarioRun due = wheel.poll(System.nanoTime());
+      if (due != null) {
+        runStep(due);
+        return;
+      }
+      if (busyCardCount == shardSize) {
+        // Every card of the shard is in a scenario; wait for the next step without using up the clock or randomness
+        LockSupport.parkNanos(WHEEL_TICK_NANOS);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        return;
+      }
+    }
+
+    // --- 0. Advance the simulated clock normally (This time is the base time for the next transaction) ---
+    long incrementRange = TransactionGenerator.MAX_TIME_INCREMENT_MS - TransactionGenerator.MIN_TIME_INCREMENT_MS + 1;
+    long timeIncrement = TransactionGenerator.MIN_TIME_INCREMENT_MS + random.nextInt((int) incrementRange);
+    simulatedCurrentTime += timeIncrement;
+
+    boolean fraud = random.nextDouble() < TransactionGenerator.FRAUD_SCENARIO_PROBABILITY;
+    int cardIndex = getRandomCard();
+    if (busyCards != null) {
+      // A card in the middle of a scenario gets no other events, which would break their time order; pick another
+      while (busyCards.get(cardIndex / workerCount)) {
+        cardIndex = getRandomCard();
+      }
+    }
+    if (fraud) {
+      // --- INJECTING MULTI-STEP FRAUD SCENARIO ---
+      int fraudIp = sampler.generateNewRandomIp(); // New, non-sticky IP for the compromised activity
+
+      // Ensure the card's "home" IP is set for the normal path, even if we use a new one now.
+      sampler.getIpForCard(cardIndex);
+
+      FraudScenario scenario = scenarios.sample(random);
+      if (wheel != null) {
+        startRun(cardIndex, fraudIp, scenario);
+        return;
+      }
+      for (int step = 0; step < scenario.stepCount(); step++) {
+        // The simulated clock advances with each step, so the next iteration continues after the scenario
+        simulatedCurrentTime += scenario.delayMillis(step);
+        int receiver = scenario.receiver(step, sampler);
+        publish(new TransactionEvent(cardIndex, receiver, scenario.amountCents(step, receiver, sampler), fraudIp,
+            simulatedCurrentTime), scenario.tag(step));
+      }
+
+    } else {
+      // --- GENERATE SINGLE NORMAL TRANSACTION (Default path) ---
+      int receiver = sampler.getRandomReceiver();
+      long amount = sampler.getRandomAmount(receiver);
+      int ipAddress = sampler.getIpForCard(cardIndex); // Use "sticky" IP logic
+
+      publish(new TransactionEvent(cardIndex, receiver, amount, ipAddress, simulatedCurrentTime), "NORMAL");
+    }
+  }
+
+  // --- Scheduled Scenarios ---
+
+  /**
+   * Starts a scenario on the timing wheel. It runs on its own simulated
+   * timeline from the current time; the worker's clock carries on with the
+   * normal traffic.
+   */
+  private void startRun(int cardIndex, int fraudIp, FraudScenario scenario) throws InterruptedException {
+    ScenarioRun run = freeRuns.isEmpty() ? new ScenarioRun() : freeRuns.pop();
+    run.cardIndex = cardIndex;
+    run.fraudIp = fraudIp;
+    run.scenario = scenario;
+    run.step = 0;
+    run.stepTime = simulatedCurrentTime + scenario.delayMillis(0);
+    busyCards.set(cardIndex / workerCount);
+    busyCardCount++;
+    if (scenario.delayMillis(0) > 0) {
+      wheel.schedule(run, System.nanoTime() + wallDelayNanos(scenario.delayMillis(0)));
+    } else {
+      runStep(run);
+    }
+  }
+
+  /** Publishes the run's next step, then schedules the one after it or retires the run. */
+  private void runStep(ScenarioRun run) throws InterruptedException {
+    FraudScenario scenario = run.scenario;
+    int step = run.step;
+    int receiver = scenario.receiver(step, sampler);
+    publish(new TransactionEvent(run.cardIndex, receiver, scenario.amountCents(step, receiver, sampler),
+        run.fraudIp, run.stepTime), scenario.tag(step));
+
+    run.step = ++step;
+    if (step < scenario.stepCount()) {
+      run.stepTime += scenario.delayMillis(step);
+      wheel.schedule(run, System.nanoTime() + wallDelayNanos(scenario.delayMillis(step)));
+    } else {
+      busyCards.clear(run.cardIndex / workerCount);
+      busyCardCount--;
+      run.scenario = null;
+      freeRuns.push(run);
+    }
+  }
+
+  private long wallDelayNanos(long simulatedMillis) {
+    return (long) (simulatedMillis * 1_000_000.0 / stepTimeScale);
+  }
+
+  private void publish(TransactionEvent event, String sourceTag) throws InterruptedException {
+    long intendedNanos = rateController.acquire();
+    TransactionGenerator.publishMessage(sink, cards, encoder, event, sourceTag, intendedNanos);
+  }
+}
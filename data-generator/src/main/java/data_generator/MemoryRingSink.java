@@ -0,0 +1,51 @@
+package data_generator;
+
+import com.google.pubsub.v1.PubsubMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recent messages in a fixed-size in-memory ring, overwriting
+ * the oldest. Useful for generating without any I/O while still retaining
+ * real messages for inspection.
+ */
+final class MemoryRingSink extends CountingSink {
+
+  private final AtomicReferenceArray<PubsubMessage> ring;
+  private final AtomicLong next = new AtomicLong();
+
+  MemoryRingSink(int capacity) {
+    super("ring");
+    this.ring = new AtomicReferenceArray<>(capacity);
+  }
+
+  @Override
+  protected void write(PubsubMessage message, boolean fraud) {
+    ring.set((int) (next.getAndIncrement() % ring.length()), message);
+  }
+
+  /**
+   * The retained messages, oldest first. Writes that happen concurrently may
+   * or may not be included.
+   */
+  List<PubsubMessage> snapshot() {
+    long end = next.get();
+    long start = Math.max(0, end - ring.length());
+    List<PubsubMessage> messages = new ArrayList<>((int) (end - start));
+    for (long i = start; i < end; i++) {
+      PubsubMessage message = ring.get((int) (i % ring.length()));
+      if (message != null) {
+        messages.add(message);
+      }
+    }
+    return messages;
+  }
+
+  @Override
+  protected void close() {
+    System.out.println("Memory ring holds the last " + snapshot().size() + " message(s).");
+  }
+}
@@ -0,0 +1,227 @@
+package data_generator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+/**
+ * The merchant catalogue addressed by compact int ids. Each merchant has a
+ * {@link Category} (with its MCC code and amount distribution) and a
+ * popularity weight, kept in parallel arrays indexed by id. Every merchant
+ * name is encoded to UTF-8 (and JSON-escaped) once, so sampling a receiver is
+ * an array index and serializing it is a plain byte copy.
+ *
+ * Immutable after construction and shared by all workers.
+ */
+final class MerchantDictionary {
+
+  /**
+   * Merchant category, with its ISO 18245 merchant category code and the
+   * log-normal distribution of normal purchase amounts, truncated to
+   * [minCents, maxCents]. All ranges lie within NORMAL_MIN_AMOUNT_CENTS ..
+   * NORMAL_MAX_AMOUNT_CENTS, so normal purchases stay below the fraud range.
+   */
+  enum Category {
+    // Grocery stores and supermarkets
+    GROCERY(5411, 100, 4_500, 50_000),
+    // Home supply and hardware stores
+    HOME_IMPROVEMENT(5200, 300, 6_000, 50_000),
+    // Electronics and office supply stores
+    ELECTRONICS(5732, 500, 9_000, 50_000),
+    // Clothing, shoe and sporting goods stores
+    APPAREL(5651, 500, 6_000, 50_000),
+    // Drug stores and pharmacies
+    PHARMACY(5912, 100, 2_500, 30_000),
+    // Variety and discount stores
+    DISCOUNT(5331, 100, 1_500, 15_000),
+    // Online marketplaces and general merchandise
+    ONLINE_RETAIL(5399, 100, 3_500, 50_000),
+    // Fast food restaurants
+    FAST_FOOD(5814, 100, 1_200, 8_000),
+    // Coffee shops and sit-down restaurants
+    RESTAURANT(5812, 300, 3_500, 30_000),
+    // Software, subscriptions and online services
+    TECH_SERVICES(7372, 100, 2_000, 50_000),
+    // Airlines
+    AIRLINE(4511, 5_000, 25_000, 50_000),
+    // Hotels
+    LODGING(7011, 3_000, 18_000, 50_000),
+    // Travel agencies and booking sites
+    TRAVEL_AGENCY(4722, 2_000, 20_000, 50_000),
+    // Car rental
+    CAR_RENTAL(7512, 2_000, 15_000, 50_000),
+    // Auto parts stores
+    AUTO_PARTS(5533, 300, 4_500, 50_000),
+    // Charities; the drip targets of fraud scenarios
+    CHARITY(8398, 100, 2_500, 50_000),
+    // Telecommunication services
+    TELECOM(4814, 1_000, 8_500, 50_000),
+    // Electric, gas and water utilities
+    UTILITIES(4900, 1_000, 12_000, 50_000),
+    // Banks and card networks
+    FINANCIAL(6012, 500, 10_000, 50_000),
+    // Insurance
+    INSURANCE(6300, 2_000, 15_000, 50_000),
+    // Fuel stations and convenience stores
+    FUEL(5541, 100, 4_000, 20_000),
+    // Toy stores
+    TOYS(5945, 300, 3_000, 30_000),
+    // Movies and entertainment
+    ENTERTAINMENT(7832, 500, 2_500, 30_000);
+
+    // Standard deviation of the log of the amount
+    private static final double AMOUNT_SPREAD = 0.8;
+
+    final int mcc;
+    final long minCents;
+    final long maxCents;
+    private final double logMedianCents;
+
+    Category(int mcc, long minCents, long medianCents, long maxCents) {
+      if (minCents < TransactionGenerator.NORMAL_MIN_AMOUNT_CENTS
+          || maxCents > TransactionGenerator.NORMAL_MAX_AMOUNT_CENTS
+          || medianCents < minCents || medianCents > maxCents) {
+        throw new IllegalArgumentException("Amount range of category " + name() + " is out of bounds.");
+      }
+      this.mcc = mcc;
+      this.minCents = minCents;
+      this.maxCents = maxCents;
+      this.logMedianCents = Math.log(medianCents);
+    }
+
+    /** Draws a purchase amount in cents, redrawing the rare values outside the range. */
+    long sampleAmountCents(RandomGenerator random) {
+      long amount;
+      do {
+        amount = Math.round(Math.exp(logMedianCents + AMOUNT_SPREAD * random.nextGaussian()));
+      } while (amount < minCents || amount > maxCents);
+      return amount;
+    }
+  }
+
+  /** Merchants of one category with the same popularity weight, as listed in the catalogue. */
+  static final class Group {
+    final Category category;
+    final double weight;
+    final String[] names;
+
+    Group(Category category, double weight, String... names) {
+      if (!(weight > 0) || Double.isInfinite(weight)) {
+        throw new IllegalArgumentException("Merchant weight must be positive, got: " + weight);
+      }
+      this.category = category;
+      this.weight = weight;
+      this.names = names;
+    }
+  }
+
+  private static final Category[] CATEGORIES = Category.values();
+
+  private final String[] names;
+  private final byte[][] encodedNames;
+  private final byte[][] utf8Names;
+  // Category ordinal of each merchant
+  private final byte[] categories;
+  private final double[] weights;
+  // Ids of the merchants of each category, indexed by ordinal
+  private final int[][] idsByCategory;
+
+  /** Builds the dictionary from the catalogue; ids follow the order of the groups and names. */
+  MerchantDictionary(Group... groups) {
+    int size = 0;
+    for (Group group : groups) {
+      size += group.names.length;
+    }
+    this.names = new String[size];
+    this.encodedNames = new byte[size][];
+    this.utf8Names = new byte[size][];
+    this.categories = new byte[size];
+    this.weights = new double[size];
+    int[] categorySizes = new int[CATEGORIES.length];
+    Set<String> seen = new HashSet<>(size * 2);
+    int id = 0;
+    for (Group group : groups) {
+      for (String name : group.names) {
+        if (!seen.add(name)) {
+          throw new IllegalArgumentException("Merchant is listed twice: " + name);
+        }
+        names[id] = name;
+        encodedNames[id] = TransactionJsonEncoder.escape(name);
+        utf8Names[id] = name.getBytes(StandardCharsets.UTF_8);
+        categories[id] = (byte) group.category.ordinal();
+        weights[id] = group.weight;
+        categorySizes[group.category.ordinal()]++;
+        id++;
+      }
+    }
+
+    this.idsByCategory = new int[CATEGORIES.length][];
+    for (int c = 0; c < CATEGORIES.length; c++) {
+      idsByCategory[c] = new int[categorySizes[c]];
+      categorySizes[c] = 0;
+    }
+    for (id = 0; id < size; id++) {
+      int c = categories[id];
+      idsByCategory[c][categorySizes[c]++] = id;
+    }
+  }
+
+  /** Number of merchants; ids are 0 .. size() - 1. */
+  int size() {
+    return names.length;
+  }
+
+  /** Number of categories that have at least one merchant. */
+  int categoryCount() {
+    int count = 0;
+    for (int[] ids : idsByCategory) {
+      if (ids.length > 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  String name(int id) {
+    return names[id];
+  }
+
+  Category category(int id) {
+    return CATEGORIES[categories[id]];
+  }
+
+  /** Merchant category code of the merchant. */
+  int mcc(int id) {
+    return CATEGORIES[categories[id]].mcc;
+  }
+
+  /** Relative popularity of the merchant for normal purchases. */
+  double weight(int id) {
+    return weights[id];
+  }
+
+  /** The JSON-escaped UTF-8 bytes of the merchant name (without quotes). Must not be modified. */
+  byte[] encodedName(int id) {
+    return encodedNames[id];
+  }
+
+  /** The plain UTF-8 bytes of the merchant name, for the binary formats. Must not be modified. */
+  byte[] utf8Name(int id) {
+    return utf8Names[id];
+  }
+
+  /** Ids of the merchants in any of the categories, in id order. */
+  int[] idsIn(Category... categories) {
+    int[] ids = new int[0];
+    for (Category category : categories) {
+      int[] more = idsByCategory[category.ordinal()];
+      int start = ids.length;
+      ids = Arrays.copyOf(ids, start + more.length);
+      System.arraycopy(more, 0, ids, start, more.length);
+    }
+    Arrays.sort(ids);
+    return ids;
+  }
+}
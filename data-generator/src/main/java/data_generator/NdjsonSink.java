@@ -0,0 +1,60 @@
+package data_generator;
+
+import com.google.pubsub.v1.PubsubMessage;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes every payload followed by a newline, which for --format=json without
+ * a payload codec is newline-delimited JSON. Writes from the generation
+ * threads are serialized by a lock, so each line is one whole message and
+ * each card's messages appear in order. The lock is a ReentrantLock rather
+ * than a monitor, so virtual-cards threads waiting for it don't pin their
+ * carrier threads.
+ */
+final class NdjsonSink extends CountingSink {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final OutputStream out;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  NdjsonSink(OutputStream out) {
+    super("ndjson");
+    this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+  }
+
+  @Override
+  protected void write(PubsubMessage message, boolean fraud) throws IOException {
+    lock.lock();
+    try {
+      message.getData().writeTo(out);
+      out.write('\n');
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  protected void flush() throws IOException {
+    lock.lock();
+    try {
+      out.flush();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  protected void close() throws IOException {
+    lock.lock();
+    try {
+      out.close();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package data_generator;
+
+import com.google.pubsub.v1.PubsubMessage;
+
+/** Discards every message; measures raw generation and encoding throughput. */
+final class NullSink extends CountingSink {
+
+  NullSink() {
+    super("null");
+  }
+
+  @Override
+  protected void write(PubsubMessage message, boolean fraud) {
+    // Counted by CountingSink; nothing else to do
+  }
+}
@@ -0,0 +1,145 @@
+package data_generator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the messages (and their bytes) that have been handed to the
+ * publishing layer but not yet acknowledged or given up, including those
+ * buffered for retry. Without a bound, a slow Pub/Sub lets futures,
+ * callbacks and message buffers pile up until the JVM runs out of memory.
+ *
+ * What happens at the limit is set by the {@link Policy}. The counters are
+ * atomics, so the common case (below the limit) takes no lock; only blocked
+ * callers wait on a condition, which is signalled as messages complete.
+ */
+final class OutstandingLimiter {
+
+  /** What to do with a message when the outstanding limit is reached. */
+  enum Policy {
+    // Wait until enough outstanding messages complete
+    BLOCK,
+    // Drop the message (counted as shed) and carry on
+    SHED,
+    // Pause increasingly long once past half of the limit, and block at the limit
+    SLOW
+  }
+
+  // SLOW: fraction of the limit at which pausing starts, and the pause at the limit
+  private static final double SLOW_START_FRACTION = 0.5;
+  private static final long SLOW_MAX_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+  // Blocked callers re-check at least this often, in case a signal raced with their wait
+  private static final long BLOCK_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final long maxMessages;
+  private final long maxBytes;
+  private final Policy policy;
+
+  private final AtomicLong messages = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  private final LongAdder shed = new LongAdder();
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private final AtomicInteger waiters = new AtomicInteger();
+
+  OutstandingLimiter(long maxMessages, long maxBytes, Policy policy) {
+    this.maxMessages = maxMessages;
+    this.maxBytes = maxBytes;
+    this.policy = policy;
+  }
+
+  /**
+   * Reserves room for one message of the given size. Returns false if the
+   * message was shed; otherwise the caller must {@link #release} it once it
+   * completes.
+   */
+  boolean acquire(long messageBytes) throws InterruptedException {
+    if (policy == Policy.SLOW) {
+      pauseIfFilling();
+    }
+    if (tryAcquire(messageBytes)) {
+      return true;
+    }
+    if (policy == Policy.SHED) {
+      shed.increment();
+      return false;
+    }
+
+    lock.lockInterruptibly();
+    waiters.incrementAndGet();
+    try {
+      while (!tryAcquire(messageBytes)) {
+        released.awaitNanos(BLOCK_RECHECK_NANOS);
+      }
+    } finally {
+      waiters.decrementAndGet();
+      lock.unlock();
+    }
+    return true;
+  }
+
+  /** Returns the room taken by a completed (acknowledged or dropped) message. */
+  void release(long messageBytes) {
+    messages.decrementAndGet();
+    bytes.addAndGet(-messageBytes);
+    if (waiters.get() > 0) {
+      lock.lock();
+      try {
+        released.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private boolean tryAcquire(long messageBytes) {
+    long count = messages.incrementAndGet();
+    long total = bytes.addAndGet(messageBytes);
+    // A single message larger than the byte limit is let through when nothing else is outstanding
+    if (count <= maxMessages && (total <= maxBytes || count == 1)) {
+      return true;
+    }
+    messages.decrementAndGet();
+    bytes.addAndGet(-messageBytes);
+    return false;
+  }
+
+  /** SLOW policy: parks the caller in proportion to how far past SLOW_START_FRACTION the fill is. */
+  private void pauseIfFilling() throws InterruptedException {
+    double fill = Math.max((double) messages.get() / maxMessages, (double) bytes.get() / maxBytes);
+    if (fill > SLOW_START_FRACTION) {
+      double ramp = Math.min(1.0, (fill - SLOW_START_FRACTION) / (1.0 - SLOW_START_FRACTION));
+      TimeUnit.NANOSECONDS.sleep((long) (ramp * SLOW_MAX_PAUSE_NANOS));
+    }
+  }
+
+  // --- Metrics ---
+
+  long outstandingMessages() {
+    return messages.get();
+  }
+
+  long outstandingBytes() {
+    return bytes.get();
+  }
+
+  long shedCount() {
+    return shed.sum();
+  }
+
+  Policy policy() {
+    return policy;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d/%d message(s), %d/%d bytes in flight", outstandingMessages(), maxMessages,
+        outstandingBytes(), maxBytes) + (shedCount() > 0 ? ", " + shedCount() + " shed" : "");
+  }
+}
@@ -0,0 +1,123 @@
+package data_generator;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Optional compression of each message payload (--payload-codec). Compressed
+ * messages carry a {@value #CONTENT_ENCODING_ATTRIBUTE} attribute naming the
+ * codec, so subscribers know to decode them.
+ *
+ * Instances keep their compressor and output buffer between messages and are
+ * not thread-safe; each generation thread (or pooled encoder) has its own.
+ */
+abstract class PayloadCodec {
+
+  static final String CONTENT_ENCODING_ATTRIBUTE = "content-encoding";
+
+  /** The available codecs. */
+  enum Type {
+    NONE,
+    GZIP,
+    ZSTD
+  }
+
+  /** Creates a codec of the given type, or returns null for {@link Type#NONE}. */
+  static PayloadCodec create(Type type) {
+    switch (type) {
+      case GZIP:
+        return new Gzip();
+      case ZSTD:
+        return new Zstandard();
+      default:
+        return null;
+    }
+  }
+
+  protected byte[] out = new byte[1024];
+
+  /** Value of the content-encoding attribute. */
+  abstract String contentEncoding();
+
+  /**
+   * Compresses {@code src[0, length)} into {@link #buffer()} and returns the
+   * compressed length. The buffer is overwritten by the next call.
+   */
+  abstract int compress(byte[] src, int length);
+
+  byte[] buffer() {
+    return out;
+  }
+
+  protected void ensureCapacity(int capacity) {
+    if (out.length < capacity) {
+      out = Arrays.copyOf(out, Math.max(capacity, out.length * 2));
+    }
+  }
+
+  // --- Codecs ---
+
+  /** RFC 1952 gzip, written around a reused raw Deflater. */
+  private static final class Gzip extends PayloadCodec {
+
+    private static final byte[] HEADER = {
+        0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int TRAILER_LENGTH = 8;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+
+    @Override
+    String contentEncoding() {
+      return "gzip";
+    }
+
+    @Override
+    int compress(byte[] src, int length) {
+      deflater.reset();
+      deflater.setInput(src, 0, length);
+      deflater.finish();
+      System.arraycopy(HEADER, 0, out, 0, HEADER.length);
+      int pos = HEADER.length;
+      while (!deflater.finished()) {
+        ensureCapacity(pos + 64);
+        pos += deflater.deflate(out, pos, out.length - pos);
+      }
+
+      crc.reset();
+      crc.update(src, 0, length);
+      ensureCapacity(pos + TRAILER_LENGTH);
+      pos = putIntLittleEndian((int) crc.getValue(), pos);
+      return putIntLittleEndian(length, pos);
+    }
+
+    private int putIntLittleEndian(int value, int pos) {
+      out[pos] = (byte) value;
+      out[pos + 1] = (byte) (value >>> 8);
+      out[pos + 2] = (byte) (value >>> 16);
+      out[pos + 3] = (byte) (value >>> 24);
+      return pos + 4;
+    }
+  }
+
+  /** Zstandard at the library's default level, with a reused compression context. */
+  private static final class Zstandard extends PayloadCodec {
+
+    private final ZstdCompressCtx context = new ZstdCompressCtx().setLevel(Zstd.defaultCompressionLevel());
+
+    @Override
+    String contentEncoding() {
+      return "zstd";
+    }
+
+    @Override
+    int compress(byte[] src, int length) {
+      ensureCapacity((int) Zstd.compressBound(length));
+      return context.compressByteArray(out, 0, out.length, src, 0, length);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package data_generator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How skewed the choice of cards and merchants is (--card-zipf,
+ * --merchant-zipf). With a card exponent of 0 cards are chosen uniformly;
+ * otherwise the card with the lowest index within a worker's shard is the
+ * most popular and popularity falls off as a power law, which concentrates
+ * traffic on a few hot ordering keys the way real traffic does. Merchants are
+ * chosen by their catalogue weight, times the same power law of their id if
+ * the merchant exponent is positive.
+ *
+ * Shared by all generation threads.
+ */
+final class Popularity {
+
+  // Uniform cards, merchants by catalogue weight
+  static final Popularity DEFAULT = new Popularity(0, 0, TransactionGenerator.MERCHANTS);
+
+  private final double cardExponent;
+  private final double merchantExponent;
+  private final AliasTable receivers;
+  // One table per shard size; the shards of the workers differ in size by at most one card
+  private final Map<Integer, ZipfSampler> cardsByShardSize = new ConcurrentHashMap<>();
+
+  Popularity(double cardExponent, double merchantExponent, MerchantDictionary merchants) {
+    this.cardExponent = cardExponent;
+    this.merchantExponent = merchantExponent;
+    double[] weights = new double[merchants.size()];
+    for (int id = 0; id < weights.length; id++) {
+      weights[id] = merchants.weight(id) * Math.pow(id + 1, -merchantExponent);
+    }
+    this.receivers = new AliasTable(weights);
+  }
+
+  /** Sampler of card positions within a shard of the given size, or null if cards are chosen uniformly. */
+  ZipfSampler cards(int shardSize) {
+    if (cardExponent == 0) {
+      return null;
+    }
+    return cardsByShardSize.computeIfAbsent(shardSize, size -> new ZipfSampler(size, cardExponent));
+  }
+
+  /** Sampler of merchant ids. */
+  AliasTable receivers() {
+    return receivers;
+  }
+
+  @Override
+  public String toString() {
+    return "cards " + (cardExponent > 0 ? "Zipf s=" + cardExponent : "uniform")
+        + ", merchants by weight" + (merchantExponent > 0 ? " and Zipf s=" + merchantExponent : "");
+  }
+}
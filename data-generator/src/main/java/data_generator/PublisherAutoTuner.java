@@ -0,0 +1,209 @@
+package data_generator;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.pubsub.v1.PubsubMessage;
+import data_generator.TransactionGenerator.TransactionEvent;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Sweeps Publisher batching settings (element count, byte threshold and delay)
+ * and reports the one with the best throughput that still meets a p99
+ * publish latency target (--autotune). Each trial publishes the same sample
+ * messages as fast as the Publisher's flow control allows for a fixed
+ * duration, measuring acknowledged messages per second and the latency from
+ * publish() to acknowledgement.
+ */
+final class PublisherAutoTuner {
+
+  private static final long[] ELEMENT_COUNTS = {10, 100, 1_000};
+  // Byte thresholds as a multiple of a full batch of sample messages (element count x mean message size):
+  // the first two close batches on bytes before the count is reached, the last leaves it to the count
+  private static final double[] REQUEST_BYTES_PER_FULL_BATCH = {0.25, 0.5, 2};
+  private static final long[] DELAYS_MS = {1, 10, 50};
+  // Pub/Sub rejects publish requests larger than this
+  private static final long MAX_REQUEST_BYTES = 10_000_000L;
+
+  // Upper bound on latency samples kept per trial
+  private static final int MAX_SAMPLES = 1 << 20;
+
+  /** Creates a Publisher for the topic under test with the given settings. */
+  interface PublisherFactory {
+    Publisher create(PublisherSettings settings) throws IOException;
+  }
+
+  /** Outcome of one trial. */
+  static final class Trial {
+    final PublisherSettings settings;
+    final double messagesPerSecond;
+    final double p50Millis;
+    final double p99Millis;
+    final long errors;
+
+    Trial(PublisherSettings settings, double messagesPerSecond, double p50Millis, double p99Millis, long errors) {
+      this.settings = settings;
+      this.messagesPerSecond = messagesPerSecond;
+      this.p50Millis = p50Millis;
+      this.p99Millis = p99Millis;
+      this.errors = errors;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%10.0f msg/s  p50 %8.2f ms  p99 %8.2f ms  errors %d  [%s]",
+          messagesPerSecond, p50Millis, p99Millis, errors, settings);
+    }
+  }
+
+  private final PublisherFactory factory;
+  private final PublisherSettings base;
+  private final List<PubsubMessage> messages;
+  private final Duration trialDuration;
+  private final double targetP99Millis;
+
+  /**
+   * @param base settings whose flow control and executor threads are kept while batching is swept
+   * @param messages sample messages published round-robin in every trial
+   */
+  PublisherAutoTuner(PublisherFactory factory, PublisherSettings base, List<PubsubMessage> messages,
+      Duration trialDuration, double targetP99Millis) {
+    this.factory = factory;
+    this.base = base;
+    this.messages = messages;
+    this.trialDuration = trialDuration;
+    this.targetP99Millis = targetP99Millis;
+  }
+
+  /**
+   * Builds {@code count} normal transaction messages for random cards, so the
+   * trials publish realistic payload sizes and ordering keys.
+   */
+  static List<PubsubMessage> sampleMessages(CardCatalog cards, CardIpStore cardIps, TransactionMessageEncoder encoder,
+      RandomGenerator random, long simulatedStartTime, int count) {
+    TransactionSampler sampler = new TransactionSampler(random, cardIps);
+    List<PubsubMessage> messages = new ArrayList<>(count);
+    long simulatedTime = simulatedStartTime;
+    for (int i = 0; i < count; i++) {
+      int cardIndex = random.nextInt(cards.size());
+      simulatedTime += random.nextLong(TransactionGenerator.MIN_TIME_INCREMENT_MS,
+          TransactionGenerator.MAX_TIME_INCREMENT_MS + 1);
+      int receiver = sampler.getRandomReceiver();
+      TransactionEvent event = new TransactionEvent(cardIndex, receiver,
+          sampler.getRandomAmount(receiver), sampler.getIpForCard(cardIndex), simulatedTime);
+      messages.add(encoder.encode(event, cards.cardNumber(cardIndex)));
+    }
+    return messages;
+  }
+
+  /** Runs all trials, printing each result, and returns the recommended one. */
+  Trial run() throws IOException, InterruptedException {
+    List<Trial> trials = new ArrayList<>();
+    long messageBytes = meanMessageBytes(messages);
+    for (long elements : ELEMENT_COUNTS) {
+      for (double fraction : REQUEST_BYTES_PER_FULL_BATCH) {
+        long bytes = Math.min(MAX_REQUEST_BYTES, Math.max(1, (long) (elements * messageBytes * fraction)));
+        for (long delay : DELAYS_MS) {
+          Trial trial = runTrial(base.withBatching(elements, bytes, Duration.ofMillis(delay)));
+          System.out.println(trial);
+          trials.add(trial);
+        }
+      }
+    }
+    return best(trials, targetP99Millis);
+  }
+
+  /** Mean serialized size of the sample messages, which is what the Publisher's byte threshold counts. */
+  private static long meanMessageBytes(List<PubsubMessage> messages) {
+    long total = 0;
+    for (PubsubMessage message : messages) {
+      total += message.getSerializedSize();
+    }
+    return messages.isEmpty() ? 0 : Math.round((double) total / messages.size());
+  }
+
+  /**
+   * The highest-throughput trial whose p99 latency meets the target, or the
+   * lowest-latency trial if none does.
+   */
+  static Trial best(List<Trial> trials, double targetP99Millis) {
+    Trial best = null;
+    for (Trial trial : trials) {
+      if (trial.p99Millis <= targetP99Millis
+          && (best == null || trial.messagesPerSecond > best.messagesPerSecond)) {
+        best = trial;
+      }
+    }
+    if (best != null) {
+      return best;
+    }
+    for (Trial trial : trials) {
+      if (best == null || trial.p99Millis < best.p99Millis) {
+        best = trial;
+      }
+    }
+    return best;
+  }
+
+  private Trial runTrial(PublisherSettings settings) throws IOException, InterruptedException {
+    Publisher publisher = factory.create(settings);
+    long[] samples = new long[MAX_SAMPLES];
+    AtomicInteger sampleCount = new AtomicInteger();
+    AtomicLong acked = new AtomicLong();
+    AtomicLong errors = new AtomicLong();
+
+    long start = System.nanoTime();
+    long deadline = start + trialDuration.toNanos();
+    try {
+      for (int i = 0; System.nanoTime() < deadline; i++) {
+        long submitted = System.nanoTime();
+        ApiFuture<String> future = publisher.publish(messages.get(i % messages.size()));
+        ApiFutures.addCallback(future, new ApiFutureCallback<String>() {
+          @Override
+          public void onFailure(Throwable t) {
+            errors.incrementAndGet();
+          }
+
+          @Override
+          public void onSuccess(String messageId) {
+            acked.incrementAndGet();
+            int slot = sampleCount.getAndIncrement();
+            if (slot < MAX_SAMPLES) {
+              samples[slot] = System.nanoTime() - submitted;
+            }
+          }
+        }, MoreExecutors.directExecutor());
+      }
+    } finally {
+      // Wait for everything that was submitted so the trial's throughput includes the tail
+      publisher.shutdown();
+      publisher.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+    int count = Math.min(sampleCount.get(), MAX_SAMPLES);
+    long[] sorted = Arrays.copyOf(samples, count);
+    Arrays.sort(sorted);
+    return new Trial(settings, acked.get() / elapsedSeconds, percentileMillis(sorted, 0.50),
+        percentileMillis(sorted, 0.99), errors.get());
+  }
+
+  private static double percentileMillis(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+}
@@ -0,0 +1,37 @@
+package data_generator;
+
+import java.time.Duration;
+
+/**
+ * Named Publisher setting presets, selected with --publisher-profile.
+ */
+enum PublisherProfile {
+
+  // Client library defaults; nothing is overridden
+  DEFAULT(null),
+
+  // Send almost immediately: small batches, 1 ms delay, tight outstanding limits
+  LATENCY(new PublisherSettings(10, 16 * 1024, Duration.ofMillis(1), 1_000, 10L * 1024 * 1024, cores())),
+
+  // Moderate batching for steady load
+  BALANCED(new PublisherSettings(100, 256 * 1024, Duration.ofMillis(10), 10_000, 100L * 1024 * 1024, cores())),
+
+  // Large batches, longer delay and generous limits for maximum messages per second
+  THROUGHPUT(new PublisherSettings(1_000, 4L * 1024 * 1024, Duration.ofMillis(50), 100_000, 1024L * 1024 * 1024,
+      2 * cores()));
+
+  private final PublisherSettings settings;
+
+  PublisherProfile(PublisherSettings settings) {
+    this.settings = settings;
+  }
+
+  /** The settings of this profile, or null for the client library defaults. */
+  PublisherSettings settings() {
+    return settings;
+  }
+
+  private static int cores() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+}
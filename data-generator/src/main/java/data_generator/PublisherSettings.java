@@ -0,0 +1,70 @@
+package data_generator;
+
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.api.gax.core.InstantiatingExecutorProvider;
+import com.google.cloud.pubsub.v1.Publisher;
+
+import java.time.Duration;
+
+/**
+ * Batching, flow-control and executor settings for a Pub/Sub Publisher.
+ * Immutable; the named presets live in {@link PublisherProfile} and the
+ * auto-tuner builds further candidates with the with* methods.
+ *
+ * Note that with message ordering enabled the Publisher batches per ordering
+ * key, so with many cards the batch thresholds are reached less often than
+ * the element count suggests and the delay threshold dominates.
+ */
+final class PublisherSettings {
+
+  final long elementCountThreshold;
+  final long requestByteThreshold;
+  final Duration delayThreshold;
+  final long maxOutstandingMessages;
+  final long maxOutstandingBytes;
+  final int executorThreads;
+
+  PublisherSettings(long elementCountThreshold, long requestByteThreshold, Duration delayThreshold,
+      long maxOutstandingMessages, long maxOutstandingBytes, int executorThreads) {
+    this.elementCountThreshold = elementCountThreshold;
+    this.requestByteThreshold = requestByteThreshold;
+    this.delayThreshold = delayThreshold;
+    this.maxOutstandingMessages = maxOutstandingMessages;
+    this.maxOutstandingBytes = maxOutstandingBytes;
+    this.executorThreads = executorThreads;
+  }
+
+  PublisherSettings withBatching(long elementCount, long requestBytes, Duration delay) {
+    return new PublisherSettings(elementCount, requestBytes, delay, maxOutstandingMessages, maxOutstandingBytes,
+        executorThreads);
+  }
+
+  /** Applies these settings to a Publisher builder. */
+  Publisher.Builder applyTo(Publisher.Builder builder) {
+    FlowControlSettings flowControl = FlowControlSettings.newBuilder()
+        .setMaxOutstandingElementCount(maxOutstandingMessages)
+        .setMaxOutstandingRequestBytes(maxOutstandingBytes)
+        .setLimitExceededBehavior(FlowController.LimitExceededBehavior.Block)
+        .build();
+    BatchingSettings batching = BatchingSettings.newBuilder()
+        .setElementCountThreshold(elementCountThreshold)
+        .setRequestByteThreshold(requestByteThreshold)
+        .setDelayThresholdDuration(delayThreshold)
+        .setFlowControlSettings(flowControl)
+        .build();
+    return builder
+        .setBatchingSettings(batching)
+        .setExecutorProvider(InstantiatingExecutorProvider.newBuilder()
+            .setExecutorThreadCount(executorThreads)
+            .build());
+  }
+
+  @Override
+  public String toString() {
+    return String.format("elements=%d, bytes=%d, delay=%dms, maxOutstanding=%d msgs/%d bytes, executorThreads=%d",
+        elementCountThreshold, requestByteThreshold, delayThreshold.toMillis(), maxOutstandingMessages,
+        maxOutstandingBytes, executorThreads);
+  }
+}
@@ -0,0 +1,83 @@
+package data_generator;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop, fixed-interval pacer. Event k is scheduled at
+ * {@code start + k * interval}, independent of how long earlier events took
+ * to generate or publish. If the caller falls behind (GC pause, slow publish),
+ * the missed slots are released immediately instead of being silently dropped,
+ * so the offered load stays at the target rate and latency can be measured
+ * from the intended send time (coordinated-omission correct).
+ *
+ * Not thread-safe: each worker owns its own controller for its share of the rate.
+ */
+final class RateController {
+
+  // Below this remaining wait we spin instead of parking, since parkNanos overshoots by tens of microseconds
+  private static final long SPIN_THRESHOLD_NANOS = 50_000L;
+
+  private final double nanosPerEvent;
+  private boolean started;
+  private long startNanos;
+  private long scheduled;
+
+  private RateController(double nanosPerEvent) {
+    this.nanosPerEvent = nanosPerEvent;
+  }
+
+  /** A controller releasing {@code eventsPerSecond} events per second. */
+  static RateController perSecond(double eventsPerSecond) {
+    if (!(eventsPerSecond > 0)) {
+      throw new IllegalArgumentException("Rate must be positive, got: " + eventsPerSecond);
+    }
+    return new RateController(1_000_000_000.0 / eventsPerSecond);
+  }
+
+  /** A controller that never waits. */
+  static RateController unlimited() {
+    return new RateController(0);
+  }
+
+  /** Starts the schedule at the current time. Called implicitly by the first acquire. */
+  void start() {
+    started = true;
+    startNanos = System.nanoTime();
+    scheduled = 0;
+  }
+
+  /**
+   * Waits until the next event's slot and returns its intended send time (in
+   * System.nanoTime() units). Returns immediately if the slot is already due.
+   * An unlimited controller has no schedule and returns the current time.
+   */
+  long acquire() throws InterruptedException {
+    if (nanosPerEvent == 0) {
+      return System.nanoTime();
+    }
+    if (!started) {
+      start();
+    }
+    long intended = startNanos + (long) (scheduled * nanosPerEvent);
+    scheduled++;
+
+    long remaining;
+    while ((remaining = intended - System.nanoTime()) > 0) {
+      if (remaining > SPIN_THRESHOLD_NANOS) {
+        LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+      } else {
+        Thread.onSpinWait();
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+    }
+    return intended;
+  }
+
+  /** How far behind schedule the next slot is, in nanoseconds (0 if on time). */
+  long lagNanos() {
+    long lag = System.nanoTime() - (startNanos + (long) (scheduled * nanosPerEvent));
+    return Math.max(0, lag);
+  }
+}
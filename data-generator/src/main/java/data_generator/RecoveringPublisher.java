@@ -0,0 +1,273 @@
+package data_generator;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.pubsub.v1.PubsubMessage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Wraps an ordering-enabled Publisher and recovers ordering keys that the
+ * Publisher paused after a failed publish.
+ *
+ * When a publish fails, the Publisher fails every outstanding message of that
+ * ordering key and rejects new ones until resumePublish(key) is called. Here
+ * those messages, and any later ones for the key, are buffered; after an
+ * exponential backoff the key is resumed and the buffer is republished in
+ * the original order. A key that keeps failing is given up after
+ * MAX_ATTEMPTS: its buffered messages are dropped (and counted) and the key is
+ * resumed so the card carries on with new events.
+ *
+ * Order within a key is restored from a sequence number taken when the
+ * message is first handed to {@link #publish}. Callers publish each key from
+ * a single thread, so that sequence is the key's publish order.
+ */
+final class RecoveringPublisher {
+
+  private static final long INITIAL_BACKOFF_MS = 100;
+  private static final long MAX_BACKOFF_MS = 10_000;
+  private static final int MAX_ATTEMPTS = 10;
+
+  /** A message on its way to the Publisher, with its position and how often it has failed. */
+  private static final class Pending {
+    final long sequence;
+    final PubsubMessage message;
+    final int attempt;
+    // When the event was scheduled to be sent, and whether it is a fraud event, for the latency histograms
+    final long submitNanos;
+    final boolean fraud;
+
+    Pending(long sequence, PubsubMessage message, int attempt, long submitNanos, boolean fraud) {
+      this.sequence = sequence;
+      this.message = message;
+      this.attempt = attempt;
+      this.submitNanos = submitNanos;
+      this.fraud = fraud;
+    }
+
+    Pending nextAttempt(int attempt) {
+      return new Pending(sequence, message, attempt, submitNanos, fraud);
+    }
+  }
+
+  private static final Comparator<Pending> BY_SEQUENCE = Comparator.comparingLong(p -> p.sequence);
+
+  /**
+   * Buffered messages of one paused ordering key. Guarded by its lock, not a
+   * monitor: publish() runs on virtual threads in virtual-cards mode.
+   */
+  private static final class PausedKey {
+    final ReentrantLock lock = new ReentrantLock();
+    final List<Pending> pending = new ArrayList<>();
+    int attempt;
+    boolean retryScheduled;
+    // Set while the buffer is being republished; failures then start a new pause
+    boolean resuming;
+    // Set once the buffer has been republished and the entry removed
+    boolean closed;
+  }
+
+  private final Publisher publisher;
+  private final ScheduledExecutorService scheduler;
+  private final OutstandingLimiter limiter;
+  private final PublishLatencyRecorder latency;
+  private final ConcurrentHashMap<String, PausedKey> pausedKeys = new ConcurrentHashMap<>();
+  private final AtomicLong sequencer = new AtomicLong();
+
+  private final LongAdder publishedMessages = new LongAdder();
+  private final LongAdder bufferedMessages = new LongAdder();
+  private final LongAdder pauses = new LongAdder();
+  private final LongAdder retriedMessages = new LongAdder();
+  private final LongAdder droppedMessages = new LongAdder();
+  private volatile String lastError;
+
+  /**
+   * @param scheduler runs the delayed retries; may be shared with other publishers
+   * @param limiter released for every message once it is acknowledged or dropped
+   * @param latency receives the latency of every acknowledged message, from its intended send time
+   */
+  RecoveringPublisher(Publisher publisher, ScheduledExecutorService scheduler, OutstandingLimiter limiter,
+      PublishLatencyRecorder latency) {
+    this.publisher = publisher;
+    this.scheduler = scheduler;
+    this.limiter = limiter;
+    this.latency = latency;
+  }
+
+  /**
+   * Publishes a message, or buffers it behind earlier messages if its
+   * ordering key is paused. Its latency is measured from {@code intendedNanos}.
+   */
+  void publish(PubsubMessage message, boolean fraud, long intendedNanos) {
+    Pending pending = new Pending(sequencer.getAndIncrement(), message, 0, intendedNanos, fraud);
+    String key = message.getOrderingKey();
+    PausedKey paused;
+    while ((paused = pausedKeys.get(key)) != null) {
+      paused.lock.lock();
+      try {
+        if (!paused.closed) {
+          paused.pending.add(pending);
+          bufferedMessages.increment();
+          return;
+        }
+      } finally {
+        paused.lock.unlock();
+      }
+    }
+    send(pending);
+  }
+
+  // --- Metrics ---
+
+  /** Messages acknowledged by Pub/Sub. */
+  long publishedMessageCount() {
+    return publishedMessages.sum();
+  }
+
+  /** Ordering keys currently paused and waiting for a retry. */
+  int pausedKeyCount() {
+    return pausedKeys.size();
+  }
+
+  /** Messages held back for paused keys. */
+  long bufferedMessageCount() {
+    return bufferedMessages.sum();
+  }
+
+  /** Times a key was paused by a failed publish. */
+  long pauseCount() {
+    return pauses.sum();
+  }
+
+  long retriedMessageCount() {
+    return retriedMessages.sum();
+  }
+
+  /** Messages given up after MAX_ATTEMPTS, or still buffered at shutdown. */
+  long droppedMessageCount() {
+    return droppedMessages.sum();
+  }
+
+  /** Message of the most recent publish failure, or null. */
+  String lastError() {
+    return lastError;
+  }
+
+  /**
+   * Starts shutting down the Publisher, which sends the outstanding messages.
+   * Messages still buffered for paused keys are counted as dropped; the
+   * retry scheduler must already be stopped.
+   */
+  void shutdown() {
+    droppedMessages.add(bufferedMessages.sumThenReset());
+    publisher.shutdown();
+  }
+
+  boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return publisher.awaitTermination(timeout, unit);
+  }
+
+  // --- Recovery ---
+
+  private void send(Pending pending) {
+    ApiFuture<String> future = publisher.publish(pending.message);
+    ApiFutures.addCallback(future, new ApiFutureCallback<String>() {
+      @Override
+      public void onFailure(Throwable t) {
+        onPublishFailure(pending, t);
+      }
+
+      @Override
+      public void onSuccess(String messageId) {
+        latency.record(pending.fraud, System.nanoTime() - pending.submitNanos);
+        publishedMessages.increment();
+        limiter.release(pending.message.getSerializedSize());
+      }
+    }, MoreExecutors.directExecutor());
+  }
+
+  private void onPublishFailure(Pending pending, Throwable t) {
+    lastError = t.getMessage();
+    String key = pending.message.getOrderingKey();
+    while (true) {
+      PausedKey paused = pausedKeys.computeIfAbsent(key, k -> new PausedKey());
+      paused.lock.lock();
+      try {
+        if (paused.closed) {
+          continue; // Resumed in the meantime; this failure starts a new pause
+        }
+        if (paused.resuming) {
+          // A republished message failed again: queue it and everything after it on a fresh entry
+          PausedKey next = new PausedKey();
+          next.attempt = paused.attempt;
+          pausedKeys.replace(key, paused, next);
+          continue;
+        }
+        paused.pending.add(pending);
+        bufferedMessages.increment();
+        paused.attempt = Math.max(paused.attempt, pending.attempt + 1);
+        if (!paused.retryScheduled) {
+          paused.retryScheduled = true;
+          pauses.increment();
+          scheduleRetry(key, paused, backoffMillis(paused.attempt));
+        }
+        return;
+      } finally {
+        paused.lock.unlock();
+      }
+    }
+  }
+
+  private void scheduleRetry(String key, PausedKey paused, long delayMillis) {
+    try {
+      scheduler.schedule(() -> retry(key, paused), delayMillis, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // Shutting down; the buffered messages are counted as dropped in shutdown()
+    }
+  }
+
+  /** Resumes the key and republishes its buffered messages in their original order. */
+  private void retry(String key, PausedKey paused) {
+    paused.lock.lock();
+    try {
+      // The entry stays in the map while its buffer is republished, so publish() waits on this
+      // lock and new messages for the key are handed over only after the republished ones.
+      paused.resuming = true;
+      bufferedMessages.add(-paused.pending.size());
+      publisher.resumePublish(key);
+
+      if (paused.attempt >= MAX_ATTEMPTS) {
+        droppedMessages.add(paused.pending.size());
+        for (Pending pending : paused.pending) {
+          limiter.release(pending.message.getSerializedSize());
+        }
+      } else {
+        paused.pending.sort(BY_SEQUENCE);
+        retriedMessages.add(paused.pending.size());
+        for (Pending pending : paused.pending) {
+          send(pending.nextAttempt(paused.attempt));
+        }
+      }
+      paused.closed = true;
+      pausedKeys.remove(key, paused);
+    } finally {
+      paused.lock.unlock();
+    }
+  }
+
+  private static long backoffMillis(int attempt) {
+    return Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << Math.min(attempt - 1, 20));
+  }
+}
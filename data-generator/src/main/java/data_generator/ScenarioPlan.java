@@ -0,0 +1,138 @@
+package data_generator;
+
+import data_generator.MerchantDictionary.Category;
+
+import java.util.Locale;
+
+/**
+ * A declarative {@link FraudScenario}, compiled from its configuration into
+ * parallel per-step arrays once at startup. Running a step is a few array
+ * lookups and a sampler call, so a scenario allocates nothing beyond the
+ * events it emits.
+ */
+final class ScenarioPlan implements FraudScenario {
+
+  /** Where the receiver of a step is drawn from. */
+  enum Receivers {
+    // Any merchant, by popularity
+    ANY(),
+    // The charities used as drip targets
+    CHARITY(Category.CHARITY),
+    // The high-value fraud targets
+    FRAUD_TARGET(Category.ELECTRONICS, Category.ONLINE_RETAIL);
+
+    private final Category[] categories;
+
+    Receivers(Category... categories) {
+      this.categories = categories;
+    }
+  }
+
+  /** Range the amount of a step is drawn from. */
+  enum Amount {
+    // The receiver's category distribution
+    NORMAL,
+    // FRAUD_MIN_AMOUNT_CENTS .. FRAUD_MAX_AMOUNT_CENTS
+    FRAUD
+  }
+
+  private final String name;
+  private final String[] tags;
+  // Merchant ids a step's receiver is drawn from uniformly; null draws any merchant by popularity
+  private final int[][] receiverIds;
+  private final Amount[] amounts;
+  private final long[] delaysMillis;
+
+  private ScenarioPlan(String name, String[] tags, int[][] receiverIds, Amount[] amounts, long[] delaysMillis) {
+    this.name = name;
+    this.tags = tags;
+    this.receiverIds = receiverIds;
+    this.amounts = amounts;
+    this.delaysMillis = delaysMillis;
+  }
+
+  /**
+   * Compiles the steps of a scenario, separated by ';', each written as
+   * "TAG RECEIVERS AMOUNT DELAY_MS" (see fraud-scenarios.properties).
+   */
+  static ScenarioPlan compile(String name, String steps) {
+    String[] definitions = steps.split(";");
+    int count = definitions.length;
+    String[] tags = new String[count];
+    int[][] receiverIds = new int[count][];
+    Amount[] amounts = new Amount[count];
+    long[] delaysMillis = new long[count];
+    for (int i = 0; i < count; i++) {
+      String[] fields = definitions[i].trim().split("\\s+");
+      if (fields.length != 4) {
+        throw new IllegalArgumentException("Step " + (i + 1) + " of fraud scenario '" + name
+            + "' must be 'TAG RECEIVERS AMOUNT DELAY_MS', got: '" + definitions[i].trim() + "'");
+      }
+      tags[i] = fields[0];
+      Receivers receivers = parse(Receivers.class, name, fields[1]);
+      if (receivers != Receivers.ANY) {
+        receiverIds[i] = TransactionGenerator.MERCHANTS.idsIn(receivers.categories);
+        if (receiverIds[i].length == 0) {
+          throw new IllegalArgumentException("Fraud scenario '" + name + "' draws receivers from '" + fields[1]
+              + "', which has no merchants.");
+        }
+      }
+      amounts[i] = parse(Amount.class, name, fields[2]);
+      try {
+        delaysMillis[i] = Long.parseLong(fields[3]);
+      } catch (NumberFormatException e) {
+        delaysMillis[i] = -1;
+      }
+      if (delaysMillis[i] < 0) {
+        throw new IllegalArgumentException("Delay of fraud scenario '" + name
+            + "' must be a non-negative number of milliseconds, got: '" + fields[3] + "'");
+      }
+    }
+    return new ScenarioPlan(name, tags, receiverIds, amounts, delaysMillis);
+  }
+
+  private static <E extends Enum<E>> E parse(Class<E> type, String name, String value) {
+    try {
+      return Enum.valueOf(type, value.replace('-', '_').toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown " + type.getSimpleName().toLowerCase(Locale.ROOT)
+          + " in fraud scenario '" + name + "': '" + value + "'");
+    }
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public int stepCount() {
+    return tags.length;
+  }
+
+  @Override
+  public long delayMillis(int step) {
+    return delaysMillis[step];
+  }
+
+  @Override
+  public String tag(int step) {
+    return tags[step];
+  }
+
+  @Override
+  public int receiver(int step, TransactionSampler sampler) {
+    int[] ids = receiverIds[step];
+    return ids != null ? sampler.getReceiverFrom(ids) : sampler.getRandomReceiver();
+  }
+
+  @Override
+  public long amountCents(int step, int receiver, TransactionSampler sampler) {
+    return amounts[step] == Amount.FRAUD ? sampler.getRandomFraudAmount() : sampler.getRandomAmount(receiver);
+  }
+
+  @Override
+  public String toString() {
+    return name + " (" + tags.length + " steps)";
+  }
+}
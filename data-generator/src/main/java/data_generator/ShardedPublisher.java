@@ -0,0 +1,193 @@
+package data_generator;
+
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.pubsub.v1.PubsubMessage;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Pub/Sub sink. Fans messages out over K Publishers (--publishers), each
+ * with its own batching pipeline and gRPC channel. A message goes to the
+ * Publisher chosen by the hash of its ordering key, so every card always uses
+ * the same Publisher and its order is preserved.
+ *
+ * Each Publisher is wrapped in a {@link RecoveringPublisher}; they share one
+ * retry thread and one {@link OutstandingLimiter}, and their counters
+ * (including the in-flight depth) and publish latency percentiles are
+ * reported together every REPORT_INTERVAL_SECONDS and at shutdown.
+ */
+final class ShardedPublisher implements TransactionSink {
+
+  private static final long REPORT_INTERVAL_SECONDS = 10;
+
+  private final RecoveringPublisher[] shards;
+  private final OutstandingLimiter limiter;
+  private final PublishLatencyRecorder latency = new PublishLatencyRecorder();
+  private final ScheduledExecutorService scheduler;
+  private final long startNanos = System.nanoTime();
+
+  // Totals at the previous report, for the interval rate and for only reporting recovery when it changes
+  private long reportedPublished;
+  private long reportedNanos = startNanos;
+  private long reportedPauses;
+  private long reportedDropped;
+
+  ShardedPublisher(List<Publisher> publishers, OutstandingLimiter limiter) {
+    this.limiter = limiter;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "publish-retry");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.shards = new RecoveringPublisher[publishers.size()];
+    for (int i = 0; i < shards.length; i++) {
+      shards[i] = new RecoveringPublisher(publishers.get(i), scheduler, limiter, latency);
+    }
+    scheduler.scheduleAtFixedRate(
+        this::report, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  int shardCount() {
+    return shards.length;
+  }
+
+  /**
+   * Publishes a message through the Publisher that owns its ordering key,
+   * once the outstanding limit allows. Returns false if the limiter shed it.
+   * Fraud events are kept apart in the latency histograms, which measure
+   * from the intended send time, so a wait for the limiter counts as latency.
+   */
+  @Override
+  public boolean publish(PubsubMessage message, boolean fraud, long intendedNanos) throws InterruptedException {
+    if (!limiter.acquire(message.getSerializedSize())) {
+      return false;
+    }
+    shards[shardOf(message.getOrderingKey(), shards.length)].publish(message, fraud, intendedNanos);
+    return true;
+  }
+
+  /** The shard of an ordering key; a key always maps to the same shard, which keeps its messages in order. */
+  static int shardOf(String orderingKey, int shardCount) {
+    if (shardCount == 1) {
+      return 0;
+    }
+    // Spread the hash so keys that differ only in their last characters still split evenly
+    int hash = orderingKey.hashCode() * 0x9E3779B9;
+    return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+  }
+
+  /**
+   * Stops retrying and shuts down all Publishers, waiting for their
+   * outstanding messages, then prints the final totals.
+   */
+  @Override
+  public void shutdown() throws InterruptedException {
+    scheduler.shutdownNow();
+    // Start every shutdown first so the Publishers flush in parallel
+    for (RecoveringPublisher shard : shards) {
+      shard.shutdown();
+    }
+    for (RecoveringPublisher shard : shards) {
+      shard.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    System.out.println(summary());
+    System.out.println(latency.totalReport());
+  }
+
+  // --- Aggregate Metrics ---
+
+  OutstandingLimiter limiter() {
+    return limiter;
+  }
+
+  long publishedMessageCount() {
+    long total = 0;
+    for (RecoveringPublisher shard : shards) {
+      total += shard.publishedMessageCount();
+    }
+    return total;
+  }
+
+  int pausedKeyCount() {
+    int total = 0;
+    for (RecoveringPublisher shard : shards) {
+      total += shard.pausedKeyCount();
+    }
+    return total;
+  }
+
+  long bufferedMessageCount() {
+    long total = 0;
+    for (RecoveringPublisher shard : shards) {
+      total += shard.bufferedMessageCount();
+    }
+    return total;
+  }
+
+  long pauseCount() {
+    long total = 0;
+    for (RecoveringPublisher shard : shards) {
+      total += shard.pauseCount();
+    }
+    return total;
+  }
+
+  long retriedMessageCount() {
+    long total = 0;
+    for (RecoveringPublisher shard : shards) {
+      total += shard.retriedMessageCount();
+    }
+    return total;
+  }
+
+  long droppedMessageCount() {
+    long total = 0;
+    for (RecoveringPublisher shard : shards) {
+      total += shard.droppedMessageCount();
+    }
+    return total;
+  }
+
+  String summary() {
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    long published = publishedMessageCount();
+    return String.format("Published %d message(s) via %d publisher(s), %.1f/s overall; %s", published,
+        shards.length, published / seconds, limiter) + (pauseCount() > 0 ? "; recovery: " + recoveryCounters() : "");
+  }
+
+  private String recoveryCounters() {
+    return String.format("%d paused key(s), %d buffered, %d pause(s), %d retried, %d dropped",
+        pausedKeyCount(), bufferedMessageCount(), pauseCount(), retriedMessageCount(), droppedMessageCount());
+  }
+
+  /** Prints the publish rate over the last interval, and the recovery counters while keys are being recovered. */
+  private void report() {
+    long now = System.nanoTime();
+    long published = publishedMessageCount();
+    System.out.printf("Published %d message(s) via %d publisher(s), %.1f/s; %s%n", published, shards.length,
+        (published - reportedPublished) * 1e9 / (now - reportedNanos), limiter);
+    System.out.println(latency.intervalReport());
+    reportedPublished = published;
+    reportedNanos = now;
+
+    long pauses = pauseCount();
+    long dropped = droppedMessageCount();
+    if (pausedKeyCount() > 0 || pauses != reportedPauses || dropped != reportedDropped) {
+      System.err.println("Publish recovery: " + recoveryCounters() + ". Last error: " + lastError());
+    }
+    reportedPauses = pauses;
+    reportedDropped = dropped;
+  }
+
+  private String lastError() {
+    for (RecoveringPublisher shard : shards) {
+      if (shard.lastError() != null) {
+        return shard.lastError();
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,120 @@
+package data_generator;
+
+import com.google.pubsub.v1.PubsubMessage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records the generated messages, byte for byte, into a memory-mapped tape
+ * file (--sink=tape) that {@link TapeReplayer} can publish again later. This
+ * separates generation cost from publish cost, and lets identical traffic be
+ * re-run against new pipeline versions.
+ *
+ * The file is written through successive memory-mapped windows of
+ * WINDOW_SIZE bytes. It starts with a header of HEADER_SIZE bytes; a record
+ * never spans two windows, and a zero record length means the rest of the
+ * window is unused. Each record is:
+ *
+ * * int length of the rest of the record
+ * * long nanoseconds since the start of the recording
+ * * byte flags (FLAG_FRAUD)
+ * * short ordering key length, then the key's UTF-8 bytes
+ * * short attribute count, then each key and value as a short length and UTF-8 bytes
+ * * int data length, then the payload bytes
+ *
+ * Writes are serialized, so the tape holds each card's messages in the order
+ * they were generated. A blocked virtual thread unmounts while it waits for
+ * the ReentrantLock, which it would not do on a synchronized method.
+ */
+final class TapeRecorder extends CountingSink {
+
+  static final int MAGIC = 0x54415045; // "TAPE"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+  static final int WINDOW_SIZE = 64 << 20;
+  static final byte FLAG_FRAUD = 1;
+
+  private final FileChannel channel;
+  private final long startNanos = System.nanoTime();
+  private final ReentrantLock lock = new ReentrantLock();
+  private MappedByteBuffer window;
+  private long windowStart;
+
+  TapeRecorder(Path path) throws IOException {
+    super("tape");
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.window = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW_SIZE);
+    window.putInt(MAGIC).putInt(VERSION).putInt(WINDOW_SIZE).putInt(0);
+  }
+
+  @Override
+  protected void write(PubsubMessage message, boolean fraud) throws IOException {
+    byte[] key = message.getOrderingKey().getBytes(StandardCharsets.UTF_8);
+    Map<String, String> attributes = message.getAttributesMap();
+    byte[][] attributeBytes = new byte[attributes.size() * 2][];
+    int i = 0;
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      attributeBytes[i++] = attribute.getKey().getBytes(StandardCharsets.UTF_8);
+      attributeBytes[i++] = attribute.getValue().getBytes(StandardCharsets.UTF_8);
+    }
+
+    int length = Long.BYTES + 1 + Short.BYTES + key.length + Short.BYTES + Integer.BYTES
+        + message.getData().size();
+    for (byte[] bytes : attributeBytes) {
+      length += Short.BYTES + bytes.length;
+    }
+    lock.lock();
+    try {
+      ensureRoom(Integer.BYTES + length);
+
+      window.putInt(length)
+          .putLong(System.nanoTime() - startNanos)
+          .put(fraud ? FLAG_FRAUD : 0)
+          .putShort((short) key.length)
+          .put(key)
+          .putShort((short) attributes.size());
+      for (byte[] bytes : attributeBytes) {
+        window.putShort((short) bytes.length).put(bytes);
+      }
+      window.putInt(message.getData().size());
+      message.getData().copyTo(window);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Moves on to a new window if the current one cannot hold {@code bytes} more. */
+  private void ensureRoom(int bytes) throws IOException {
+    if (bytes > WINDOW_SIZE) {
+      throw new IOException("A record of " + bytes + " bytes does not fit in a tape window of " + WINDOW_SIZE);
+    }
+    if (window.remaining() >= bytes) {
+      return;
+    }
+    // The remaining bytes of a mapped window are zero, which marks them as unused
+    window.force();
+    windowStart += WINDOW_SIZE;
+    window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, WINDOW_SIZE);
+  }
+
+  /** Flushes the tape and trims the unused end of the last window. */
+  @Override
+  protected void close() throws IOException {
+    lock.lock();
+    try {
+      window.force();
+      channel.truncate(windowStart + window.position());
+      channel.close();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
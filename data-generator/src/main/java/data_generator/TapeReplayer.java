@@ -0,0 +1,183 @@
+package data_generator;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes the messages of a tape written by {@link TapeRecorder} to a sink
+ * again (--mode=replay), at the recorded pace, N times faster, or as fast as
+ * possible.
+ *
+ * Each of the N replay threads scans the whole tape and publishes the records
+ * whose ordering key hashes to it, so every card is replayed by one thread in
+ * the recorded order. Skipping a record only reads its header, so the scan is
+ * cheap next to publishing.
+ */
+final class TapeReplayer implements EventGenerator {
+
+  // Below this remaining wait we spin instead of parking, as in RateController
+  private static final long SPIN_THRESHOLD_NANOS = 50_000L;
+
+  private final List<ByteBuffer> windows = new ArrayList<>();
+  private final TransactionSink sink;
+  private final int threadCount;
+  private final double speed;
+  private final List<Thread> threads = new ArrayList<>();
+  private long startNanos;
+
+  /**
+   * @param speed replay speed relative to the recording; 0 means unlimited
+   */
+  TapeReplayer(Path path, TransactionSink sink, int threadCount, double speed) throws IOException {
+    this.sink = sink;
+    this.threadCount = threadCount;
+    this.speed = speed;
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      MappedByteBuffer first = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+          Math.min(size, TapeRecorder.HEADER_SIZE));
+      if (size < TapeRecorder.HEADER_SIZE || first.getInt() != TapeRecorder.MAGIC) {
+        throw new IOException(path + " is not a transaction tape");
+      }
+      if (first.getInt() != TapeRecorder.VERSION) {
+        throw new IOException(path + " was recorded in an unsupported tape version");
+      }
+      int windowSize = first.getInt();
+
+      // Mappings stay valid after the channel is closed
+      for (long start = 0; start < size; start += windowSize) {
+        windows.add(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start)));
+      }
+    }
+  }
+
+  /** Starts one thread per shard of the ordering keys. */
+  @Override
+  public void start() {
+    startNanos = System.nanoTime();
+    for (int i = 0; i < threadCount; i++) {
+      int shard = i;
+      Thread thread = new Thread(() -> replay(shard), "tape-replay-" + i);
+      threads.add(thread);
+      thread.start();
+    }
+  }
+
+  @Override
+  public void stop() {
+    for (Thread thread : threads) {
+      thread.interrupt();
+    }
+  }
+
+  @Override
+  public void awaitTermination() throws InterruptedException {
+    try {
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException e) {
+      stop();
+      throw e;
+    }
+  }
+
+  private void replay(int shard) {
+    try {
+      for (int w = 0; w < windows.size(); w++) {
+        ByteBuffer window = windows.get(w).duplicate();
+        if (w == 0) {
+          window.position(TapeRecorder.HEADER_SIZE);
+        }
+        while (window.remaining() >= Integer.BYTES) {
+          int length = window.getInt();
+          if (length == 0) {
+            break; // Rest of the window is unused
+          }
+          int next = window.position() + length;
+          if (!replayRecord(window, shard)) {
+            window.position(next);
+          }
+          if (Thread.currentThread().isInterrupted()) {
+            return;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt(); // Restore the interrupted status
+    }
+  }
+
+  /**
+   * Publishes the record at the window's position if its key belongs to this
+   * shard, leaving the position after the record. Returns false, with the
+   * position somewhere inside the record, if it belongs to another shard.
+   */
+  private boolean replayRecord(ByteBuffer window, int shard) throws InterruptedException {
+    long offsetNanos = window.getLong();
+    boolean fraud = (window.get() & TapeRecorder.FLAG_FRAUD) != 0;
+    int keyLength = window.getShort();
+    if (threadCount > 1 && shardOf(window, keyLength) != shard) {
+      return false;
+    }
+
+    PubsubMessage.Builder message = PubsubMessage.newBuilder().setOrderingKey(readString(window, keyLength));
+    for (int attributes = window.getShort(); attributes > 0; attributes--) {
+      String name = readString(window, window.getShort());
+      message.putAttributes(name, readString(window, window.getShort()));
+    }
+    int dataLength = window.getInt();
+    ByteBuffer data = window.slice(window.position(), dataLength);
+    window.position(window.position() + dataLength);
+    message.setData(ByteString.copyFrom(data));
+
+    long intendedNanos = System.nanoTime();
+    if (speed > 0) {
+      intendedNanos = startNanos + (long) (offsetNanos / speed);
+      awaitNanos(intendedNanos);
+    }
+    sink.publish(message.build(), fraud, intendedNanos);
+    return true;
+  }
+
+  /** Hashes the ordering key bytes in place, without decoding them. */
+  private int shardOf(ByteBuffer window, int keyLength) {
+    int hash = 0;
+    for (int i = window.position(), end = i + keyLength; i < end; i++) {
+      hash = 31 * hash + window.get(i);
+    }
+    return Math.floorMod(hash ^ (hash >>> 16), threadCount);
+  }
+
+  private static String readString(ByteBuffer window, int length) {
+    byte[] bytes = new byte[length];
+    window.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void awaitNanos(long deadline) throws InterruptedException {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      if (remaining > SPIN_THRESHOLD_NANOS) {
+        LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+      } else {
+        Thread.onSpinWait();
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+    }
+  }
+}
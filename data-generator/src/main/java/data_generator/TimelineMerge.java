@@ -0,0 +1,211 @@
+package data_generator;
+
+import data_generator.TransactionGenerator.TransactionEvent;
+
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generation mode (--mode=timelines) that merges the timelines of many
+ * concurrently active cards by event time. Every card has its own next event
+ * time: the next purchase, or the next step of a fraud scenario it is in the
+ * middle of. A binary min-heap over those times yields the card whose event
+ * comes first, so the output is one globally time-ordered stream in which
+ * fraud sequences overlap with each other and with normal traffic. Each
+ * event costs O(log n) in the number of active cards.
+ *
+ * The heap and the per-card state are primitive parallel arrays indexed by
+ * timeline, so nothing is allocated per event except the event itself. The
+ * merge runs on a single thread, paced by --rate; that thread publishes every
+ * event, which keeps the per-card order.
+ */
+final class TimelineMerge implements EventGenerator {
+
+  private final CardCatalog cards;
+  private final TransactionSink sink;
+  private final TransactionMessageEncoder encoder;
+  private final FraudScenarioRegistry scenarios;
+  private final RateController rateController;
+  private final RandomGenerator random;
+  private final TransactionSampler sampler;
+  private final int activeCards;
+
+  // --- Timelines, indexed by timeline id ---
+
+  // Simulated time of each timeline's next event (epoch milliseconds)
+  private final long[] nextTimes;
+  // Scenario a timeline is running and its next step; null when the card is between purchases
+  private final FraudScenario[] runningScenarios;
+  private final int[] scenarioSteps;
+  private final int[] fraudIps;
+
+  // Binary min-heap of timeline ids ordered by nextTimes; heap[0] is the earliest
+  private final int[] heap;
+
+  private Thread thread;
+
+  /**
+   * @param popularity skew of the merchants the cards buy from
+   * @param activeCards number of card timelines merged, spread evenly over the catalogue
+   * @param rate target events per second; 0 means unlimited
+   */
+  TimelineMerge(CardCatalog cards, CardIpStore cardIps, TransactionSink sink,
+      Supplier<TransactionMessageEncoder> encoders, FraudScenarioRegistry scenarios, Popularity popularity,
+      int activeCards, double rate, RandomGenerator random, long simulatedStartTime) {
+    if (activeCards > cards.size()) {
+      throw new IllegalArgumentException(
+          "Cannot merge " + activeCards + " active cards out of " + cards.size() + " cards.");
+    }
+    this.cards = cards;
+    this.sink = sink;
+    this.encoder = encoders.get();
+    this.scenarios = scenarios;
+    this.rateController = rate > 0 ? RateController.perSecond(rate) : RateController.unlimited();
+    this.random = random;
+    this.sampler = new TransactionSampler(random, cardIps, popularity);
+    this.activeCards = activeCards;
+
+    this.nextTimes = new long[activeCards];
+    this.runningScenarios = new FraudScenario[activeCards];
+    this.scenarioSteps = new int[activeCards];
+    this.fraudIps = new int[activeCards];
+    this.heap = new int[activeCards];
+
+    // Stagger the first purchases so the cards don't start in lockstep
+    for (int id = 0; id < activeCards; id++) {
+      nextTimes[id] = simulatedStartTime + randomPurchaseGap();
+      heap[id] = id;
+    }
+    for (int i = activeCards / 2 - 1; i >= 0; i--) {
+      siftDown(i);
+    }
+  }
+
+  @Override
+  public void start() {
+    thread = new Thread(this::run, "timeline-merge");
+    thread.start();
+  }
+
+  @Override
+  public void stop() {
+    if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  @Override
+  public void awaitTermination() throws InterruptedException {
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      stop();
+      throw e;
+    }
+  }
+
+  private void run() {
+    try {
+      rateController.start();
+      while (!Thread.currentThread().isInterrupted()) {
+        advance();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt(); // Restore the interrupted status
+    }
+  }
+
+  // --- Merge ---
+
+  /**
+   * Handles the earliest timeline: publishes its event, or starts a fraud
+   * scenario whose first step lies in the future, then moves the timeline to
+   * its next event time.
+   */
+  void advance() throws InterruptedException {
+    int id = heap[0];
+    int cardIndex = cardIndex(id);
+    long time = nextTimes[id];
+
+    FraudScenario scenario = runningScenarios[id];
+    if (scenario == null && random.nextDouble() < TransactionGenerator.FRAUD_SCENARIO_PROBABILITY) {
+      scenario = startScenario(id, cardIndex);
+      if (scenario.delayMillis(0) > 0) {
+        // The first step is a later event of this timeline; other cards may come first
+        reschedule(id, time + scenario.delayMillis(0));
+        return;
+      }
+    }
+
+    if (scenario != null) {
+      int step = scenarioSteps[id];
+      int receiver = scenario.receiver(step, sampler);
+      publish(new TransactionEvent(cardIndex, receiver, scenario.amountCents(step, receiver, sampler),
+          fraudIps[id], time), scenario.tag(step));
+      if (++step < scenario.stepCount()) {
+        scenarioSteps[id] = step;
+        reschedule(id, time + scenario.delayMillis(step));
+        return;
+      }
+      runningScenarios[id] = null;
+    } else {
+      // --- Normal purchase, using the card's "sticky" IP ---
+      int receiver = sampler.getRandomReceiver();
+      publish(new TransactionEvent(cardIndex, receiver, sampler.getRandomAmount(receiver),
+          sampler.getIpForCard(cardIndex), time), "NORMAL");
+    }
+    reschedule(id, time + randomPurchaseGap());
+  }
+
+  private FraudScenario startScenario(int id, int cardIndex) {
+    fraudIps[id] = sampler.generateNewRandomIp(); // New, non-sticky IP for the compromised activity
+
+    // Ensure the card's "home" IP is set for the normal path, even if we use a new one now.
+    sampler.getIpForCard(cardIndex);
+
+    FraudScenario scenario = scenarios.sample(random);
+    runningScenarios[id] = scenario;
+    scenarioSteps[id] = 0;
+    return scenario;
+  }
+
+  private void publish(TransactionEvent event, String sourceTag) throws InterruptedException {
+    long intendedNanos = rateController.acquire();
+    TransactionGenerator.publishMessage(sink, cards, encoder, event, sourceTag, intendedNanos);
+  }
+
+  private int cardIndex(int id) {
+    return (int) ((long) id * cards.size() / activeCards);
+  }
+
+  private long randomPurchaseGap() {
+    return random.nextLong(TransactionGenerator.MIN_TIME_INCREMENT_MS, TransactionGenerator.MAX_TIME_INCREMENT_MS + 1);
+  }
+
+  // --- Heap ---
+
+  /** Moves the root timeline (heap[0]) to a later time. */
+  private void reschedule(int id, long time) {
+    nextTimes[id] = time;
+    siftDown(0);
+  }
+
+  private void siftDown(int position) {
+    int id = heap[position];
+    long time = nextTimes[id];
+    int half = activeCards >>> 1;
+    while (position < half) {
+      int child = 2 * position + 1;
+      int right = child + 1;
+      if (right < activeCards && nextTimes[heap[right]] < nextTimes[heap[child]]) {
+        child = right;
+      }
+      if (time <= nextTimes[heap[child]]) {
+        break;
+      }
+      heap[position] = heap[child];
+      position = child;
+    }
+    heap[position] = id;
+  }
+}
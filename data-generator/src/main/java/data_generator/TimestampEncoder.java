@@ -0,0 +1,127 @@
+package data_generator;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes epoch milliseconds as BigQuery DATETIME text, byte-identical to
+ * {@code LocalDateTime.ofInstant(instant, UTC).format(ISO_LOCAL_DATE_TIME)}:
+ * "yyyy-MM-ddTHH:mm:ss" followed by the milliseconds with trailing zeros
+ * removed (".5", ".25", ".125"), or nothing when the milliseconds are zero.
+ *
+ * The "yyyy-MM-ddTHH:mm:ss" part is cached and only recomputed when the
+ * second changes (and only the seconds digits when the minute is unchanged),
+ * so events within the same second cost a 19 byte copy plus the fraction.
+ * A worker's clock usually moves by more than a second per event, so there
+ * the prefix is mostly recomputed, which is still arithmetic into a reused
+ * buffer rather than java.time objects and a String.
+ *
+ * Not thread-safe: each encoder owns its own instance.
+ */
+final class TimestampEncoder {
+
+  // Longest output, from the java.time fallback at the ends of the epoch millisecond range:
+  // "-292275055-05-16T16:47:04.192"
+  static final int MAX_LENGTH = 29;
+
+  private static final int PREFIX_LENGTH = 19;
+  private static final long MILLIS_PER_DAY = 86_400_000L;
+
+  // Years outside this range are printed with a sign by ISO_LOCAL_DATE_TIME; those fall back to java.time
+  private static final long MIN_FAST_MILLIS = -62_167_219_200_000L; // 0000-01-01T00:00:00
+  private static final long MAX_FAST_MILLIS = 253_402_300_800_000L; // 10000-01-01T00:00:00
+
+  private final byte[] prefix = new byte[PREFIX_LENGTH];
+  private long cachedSecond = Long.MIN_VALUE;
+  private long cachedMinute = Long.MIN_VALUE;
+
+  /** Formats epoch milliseconds with java.time. Used for logging and as the reference format. */
+  static String format(long epochMilli) {
+    Instant instant = Instant.ofEpochMilli(epochMilli);
+    LocalDateTime ldt = LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    return ldt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+  }
+
+  /**
+   * Writes the timestamp into {@code dst} at {@code off} (which must have room
+   * for {@link #MAX_LENGTH} bytes) and returns the number of bytes written.
+   */
+  int write(long epochMilli, byte[] dst, int off) {
+    if (epochMilli < MIN_FAST_MILLIS || epochMilli >= MAX_FAST_MILLIS) {
+      byte[] slow = format(epochMilli).getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+      System.arraycopy(slow, 0, dst, off, slow.length);
+      return slow.length;
+    }
+
+    long second = Math.floorDiv(epochMilli, 1000L);
+    if (second != cachedSecond) {
+      updatePrefix(second);
+    }
+    System.arraycopy(prefix, 0, dst, off, PREFIX_LENGTH);
+    int pos = off + PREFIX_LENGTH;
+
+    int millis = (int) Math.floorMod(epochMilli, 1000L);
+    if (millis != 0) {
+      dst[pos++] = '.';
+      dst[pos++] = (byte) ('0' + millis / 100);
+      if (millis % 100 != 0) {
+        dst[pos++] = (byte) ('0' + millis / 10 % 10);
+        if (millis % 10 != 0) {
+          dst[pos++] = (byte) ('0' + millis % 10);
+        }
+      }
+    }
+    return pos - off;
+  }
+
+  private void updatePrefix(long second) {
+    cachedSecond = second;
+    long minute = Math.floorDiv(second, 60L);
+    int secondOfMinute = (int) Math.floorMod(second, 60L);
+    if (minute != cachedMinute) {
+      cachedMinute = minute;
+      writeDateHourMinute(minute);
+    }
+    prefix[17] = (byte) ('0' + secondOfMinute / 10);
+    prefix[18] = (byte) ('0' + secondOfMinute % 10);
+  }
+
+  // Fills "yyyy-MM-ddTHH:mm:" for the given epoch minute
+  private void writeDateHourMinute(long epochMinute) {
+    long epochDay = Math.floorDiv(epochMinute * 60_000L, MILLIS_PER_DAY);
+    int minuteOfDay = (int) (epochMinute - epochDay * 1440L);
+
+    // Civil date from days since 1970-01-01 (proleptic Gregorian, H. Hinnant's algorithm)
+    long z = epochDay + 719_468L;
+    long era = Math.floorDiv(z, 146_097L);
+    long dayOfEra = z - era * 146_097L;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long mp = (5 * dayOfYear + 2) / 153;
+    int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+    int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+    int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+    prefix[0] = (byte) ('0' + year / 1000);
+    prefix[1] = (byte) ('0' + year / 100 % 10);
+    prefix[2] = (byte) ('0' + year / 10 % 10);
+    prefix[3] = (byte) ('0' + year % 10);
+    prefix[4] = '-';
+    prefix[5] = (byte) ('0' + month / 10);
+    prefix[6] = (byte) ('0' + month % 10);
+    prefix[7] = '-';
+    prefix[8] = (byte) ('0' + day / 10);
+    prefix[9] = (byte) ('0' + day % 10);
+    prefix[10] = 'T';
+    int hour = minuteOfDay / 60;
+    int minute = minuteOfDay % 60;
+    prefix[11] = (byte) ('0' + hour / 10);
+    prefix[12] = (byte) ('0' + hour % 10);
+    prefix[13] = ':';
+    prefix[14] = (byte) ('0' + minute / 10);
+    prefix[15] = (byte) ('0' + minute % 10);
+    prefix[16] = ':';
+  }
+}
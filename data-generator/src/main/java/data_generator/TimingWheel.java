@@ -0,0 +1,135 @@
+package data_generator;
+
+/**
+ * A hashed timing wheel: timers are hashed by their deadline tick into a
+ * power-of-two ring of slots, so scheduling and releasing a timer cost O(1)
+ * however many are pending, plus one slot visit per elapsed tick. Timers
+ * further out than one revolution simply stay in their slot until the wheel
+ * comes round to their deadline.
+ *
+ * Timers are intrusive (callers subclass {@link Timer}) and are linked into
+ * the slots without any allocation. Timers due in the same tick are released
+ * in the order they were scheduled, and a timer is never released before one
+ * with an earlier deadline tick.
+ *
+ * Not thread-safe: each generation worker owns its own wheel, which it polls
+ * from its loop, so no thread waits on a timer.
+ */
+final class TimingWheel<T extends TimingWheel.Timer> {
+
+  /** Base class of the scheduled items. A timer may be pending in one wheel at a time. */
+  abstract static class Timer {
+    private long deadlineTick;
+    private Timer next;
+  }
+
+  private final long tickNanos;
+  private final long startNanos;
+  private final Timer[] heads;
+  private final Timer[] tails;
+  private final int mask;
+
+  // Every tick before this one has been moved to the ready list
+  private long cursorTick;
+  // Timers that are due, in release order
+  private Timer readyHead;
+  private Timer readyTail;
+  private int size;
+
+  /**
+   * @param tickNanos resolution of the deadlines
+   * @param slots number of slots, rounded up to a power of two
+   */
+  TimingWheel(long tickNanos, int slots, long nowNanos) {
+    int capacity = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+    this.tickNanos = tickNanos;
+    this.startNanos = nowNanos;
+    this.heads = new Timer[capacity];
+    this.tails = new Timer[capacity];
+    this.mask = capacity - 1;
+  }
+
+  /** Schedules a timer to be released once {@code deadlineNanos} (System.nanoTime()) has passed. */
+  void schedule(T scheduled, long deadlineNanos) {
+    Timer timer = scheduled;
+    // Round up, so a timer is never released before its deadline
+    long tick = Math.max(cursorTick, Math.floorDiv(deadlineNanos - startNanos + tickNanos - 1, tickNanos));
+    timer.deadlineTick = tick;
+    timer.next = null;
+    int slot = (int) (tick & mask);
+    if (tails[slot] == null) {
+      heads[slot] = timer;
+    } else {
+      tails[slot].next = timer;
+    }
+    tails[slot] = timer;
+    size++;
+  }
+
+  /** Returns the next timer that is due at {@code nowNanos}, or null if none is. */
+  @SuppressWarnings("unchecked")
+  T poll(long nowNanos) {
+    long nowTick = Math.floorDiv(nowNanos - startNanos, tickNanos);
+    if (size == 0) {
+      // Nothing to release; skip the idle ticks, leaving the current one open for timers already due
+      cursorTick = Math.max(cursorTick, nowTick);
+      return null;
+    }
+    if (readyHead == null) {
+      advance(nowTick);
+    }
+    Timer timer = readyHead;
+    if (timer == null) {
+      return null;
+    }
+    readyHead = timer.next;
+    if (readyHead == null) {
+      readyTail = null;
+    }
+    timer.next = null;
+    size--;
+    return (T) timer;
+  }
+
+  /** Number of scheduled timers that have not been returned by {@link #poll} yet. */
+  int size() {
+    return size;
+  }
+
+  /** Moves the timers of every tick up to and including {@code nowTick} to the ready list, tick by tick. */
+  private void advance(long nowTick) {
+    for (; cursorTick <= nowTick; cursorTick++) {
+      releaseSlot((int) (cursorTick & mask), cursorTick);
+    }
+  }
+
+  /** Moves the timers of the slot that are due at {@code tick} to the ready list, keeping their order. */
+  private void releaseSlot(int slot, long tick) {
+    Timer previous = null;
+    Timer timer = heads[slot];
+    while (timer != null) {
+      Timer next = timer.next;
+      if (timer.deadlineTick <= tick) {
+        // Unlink and append to the ready list
+        if (previous == null) {
+          heads[slot] = next;
+        } else {
+          previous.next = next;
+        }
+        if (tails[slot] == timer) {
+          tails[slot] = previous;
+        }
+        timer.next = null;
+        if (readyTail == null) {
+          readyHead = timer;
+        } else {
+          readyTail.next = timer;
+        }
+        readyTail = timer;
+      } else {
+        previous = timer;
+      }
+      timer = next;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package data_generator;
+
+import data_generator.TransactionGenerator.TransactionEvent;
+
+/**
+ * Writes a {@link TransactionEvent} in the Avro binary encoding of the
+ * Transaction record in schemas/transaction.avsc, without the Avro library or
+ * reflection. Avro writes the fields in schema order with no tags; strings
+ * are a zig-zag varint length followed by UTF-8 bytes.
+ */
+final class TransactionAvroEncoder extends BinaryTransactionEncoder {
+
+  TransactionAvroEncoder(CardCatalog cards, MerchantDictionary merchants) {
+    super(cards, merchants);
+  }
+
+  @Override
+  public int encode(TransactionEvent event) {
+    length = 0;
+
+    int lengthPosition = beginShortString();
+    putCardNumber(event.cardIndex);
+    buffer[lengthPosition] = zigZagLength(endShortString(lengthPosition));
+
+    byte[] receiver = merchants.utf8Name(event.receiverId);
+    putVarint((long) receiver.length << 1);
+    putBytes(receiver);
+
+    putDoubleLittleEndian(event.amountCents / 100.0);
+
+    lengthPosition = beginShortString();
+    putIp(event.ipAddress);
+    buffer[lengthPosition] = zigZagLength(endShortString(lengthPosition));
+
+    lengthPosition = beginShortString();
+    putTimestamp(event.epochMilli);
+    buffer[lengthPosition] = zigZagLength(endShortString(lengthPosition));
+    return length;
+  }
+
+  /** A short non-negative length as a one-byte zig-zag varint. */
+  private static byte zigZagLength(int length) {
+    return (byte) (length << 1);
+  }
+}
@@ -0,0 +1,40 @@
+package data_generator;
+
+import data_generator.TransactionGenerator.TransactionEvent;
+
+/**
+ * Serializes transaction events into a reusable buffer in one of the
+ * supported payload formats (--format). Implementations write fields
+ * directly, without reflection, and are not thread-safe.
+ */
+interface TransactionEncoder {
+
+  /** The payload formats. */
+  enum Format {
+    // JSON with the BigQuery column names as keys
+    JSON,
+    // Protocol Buffers wire format of schemas/transaction.proto
+    PROTO,
+    // Avro binary encoding of schemas/transaction.avsc
+    AVRO
+  }
+
+  static TransactionEncoder create(Format format, CardCatalog cards, MerchantDictionary merchants) {
+    switch (format) {
+      case PROTO:
+        return new TransactionProtoEncoder(cards, merchants);
+      case AVRO:
+        return new TransactionAvroEncoder(cards, merchants);
+      default:
+        return new TransactionJsonEncoder(cards, merchants);
+    }
+  }
+
+  /**
+   * Encodes the event into {@link #buffer()} and returns the number of bytes
+   * written. The bytes stay valid until the next call to encode.
+   */
+  int encode(TransactionEvent event);
+
+  byte[] buffer();
+}
@@ -1,35 +1,30 @@
 package data_generator;
 
-import com.google.api.core.ApiFuture;
-import com.google.api.core.ApiFutureCallback;
-import com.google.api.core.ApiFutures;
+import com.google.api.gax.core.NoCredentialsProvider;
 import com.google.cloud.pubsub.v1.Publisher;
-import com.google.common.util.concurrent.MoreExecutors;
-import com.google.gson.Gson;
-import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.ProjectTopicName;
 import com.google.pubsub.v1.PubsubMessage;
-
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
+import data_generator.MerchantDictionary.Category;
+import data_generator.MerchantDictionary.Group;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashMap; // Added to maintain order for fraud scenarios
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
 
 /**
  * Generates simulated credit card transactions and publishes them to Google
  * Cloud Pub/Sub with an ordering key.
  *
  * * Note: This code assumes the Pub/Sub topic has message ordering enabled.
- * * Usage: java TransactionGenerator <PROJECT_ID> <REGION>
+ * * Usage: java TransactionGenerator <PROJECT_ID> <REGION> [--option=value ...]
+ * * See GeneratorOptions for the supported options.
  */
 public class TransactionGenerator {
 
@@ -39,298 +34,238 @@ public class TransactionGenerator {
 
   // Fraud Injection Rules (Now based on multi-step scenarios)
   // 2.0% chance that a multi-step fraud sequence (2 or 3 transactions) is triggered
-  private static final double FRAUD_SCENARIO_PROBABILITY = 0.02;
-  private static final long FRAUD_SHORT_DELAY_MS = 4000L; // 4 seconds delay between steps in a scenario
+  static final double FRAUD_SCENARIO_PROBABILITY = 0.02;
+
+  // Amounts are in cents
+  static final long FRAUD_MIN_AMOUNT_CENTS = 200_000L; // $2000.00
+  static final long FRAUD_MAX_AMOUNT_CENTS = 700_000L; // $7000.00
 
-  private static final double FRAUD_MIN_AMOUNT = 2000.0;
-  private static final double FRAUD_MAX_AMOUNT = 7000.0;
+  // Bounds of the amount ranges of all merchant categories
+  static final long NORMAL_MIN_AMOUNT_CENTS = 100L; // $1.00
+  static final long NORMAL_MAX_AMOUNT_CENTS = 50_000L; // $500.00
 
   // IP/Ordering Key Stickiness Rules
-  private static final double IP_CHANGE_PROBABILITY = 0.005; // 0.5% chance that the "home" IP changes
+  static final double IP_CHANGE_PROBABILITY = 0.005; // 0.5% chance that the "home" IP changes
 
   // Time Simulation Rules
-  private static final long MIN_TIME_INCREMENT_MS = 1000L; // 1 second
-  private static final long MAX_TIME_INCREMENT_MS = 3600000L; // 1 hour
+  static final long MIN_TIME_INCREMENT_MS = 1000L; // 1 second
+  static final long MAX_TIME_INCREMENT_MS = 3600000L; // 1 hour
 
   // --- Static Utility & Data Generators ---
 
-  // Static utility for serialization
-  private static final Gson GSON = new Gson();
-
-  // Thread-safe random number generator
-  private static final Random RANDOM = new Random();
-
-  // Simulated Global Clock (as epoch milliseconds). Initialized to a time in the past.
-  private static long simulatedCurrentTime = System.currentTimeMillis() - (125400L * 60 * 1000);
+  // Offset of the default simulated clock start from the current time (a time in the past)
+  private static final long SIMULATED_START_OFFSET_MS = 125400L * 60 * 1000;
 
-  // Map to store the "home" IP for each credit card (maintaining sticky IPs)
-  private static final Map<String, String> cardIpMap = new HashMap<>();
+  // Distinct messages published round-robin by the auto-tuner
+  private static final int AUTOTUNE_SAMPLE_MESSAGES = 10_000;
 
-  // Programmatically generated list of fake credit card numbers
-  private static final List<String> CARD_NUMBERS = generateCardNumbers(10000);
+  // --fake-pubsub: names used when no project or region is given, and the acknowledgements kept
+  private static final String FAKE_PUBSUB_PROJECT_ID = "fake-project";
+  private static final String FAKE_PUBSUB_REGION = "local";
+  private static final int FAKE_PUBSUB_ACK_LOG_CAPACITY = 100_000;
 
-  // Static list of all receivers (Collections.unmodifiableList added for immutability)
-  private static final List<String> ALL_RECEIVERS = Collections.unmodifiableList(Arrays.asList(
+  // Merchant catalogue addressed by int id: category (MCC and amount distribution) and popularity weight
+  static final MerchantDictionary MERCHANTS = new MerchantDictionary(
       // Retail (General)
-      "Walmart", "Target", "Costco Wholesale", "Kmart", "Meijer", "Kroger", "Publix", "Safeway",
-      "Albertsons", "Whole Foods Market", "Trader Joe's", "Aldi", "Lidl", "Wegmans", "H-E-B",
-      "Stop & Shop", "Giant Food", "Food Lion", "Winn-Dixie", "Piggly Wiggly", "Sprouts Farmers Market",
+      new Group(Category.GROCERY, 4.0,
+          "Walmart", "Target", "Costco Wholesale", "Kmart", "Meijer", "Kroger", "Publix", "Safeway",
+          "Albertsons", "Whole Foods Market", "Trader Joe's", "Aldi", "Lidl", "Wegmans", "H-E-B", "Stop & Shop",
+          "Giant Food", "Food Lion", "Winn-Dixie", "Piggly Wiggly", "Sprouts Farmers Market"),
 
       // Retail (Hardware/Home)
-      "The Home Depot", "Lowe's", "Ace Hardware", "True Value", "Menards", "Harbor Freight Tools",
-      "Tractor Supply Co.", "Bed Bath & Beyond", "IKEA", "Crate & Barrel", "Williams-Sonoma",
-      "Pottery Barn", "Restoration Hardware", "At Home", "Floor & Decor",
+      new Group(Category.HOME_IMPROVEMENT, 1.5,
+          "The Home Depot", "Lowe's", "Ace Hardware", "True Value", "Menards", "Harbor Freight Tools",
+          "Tractor Supply Co.", "Bed Bath & Beyond", "IKEA", "Crate & Barrel", "Williams-Sonoma",
+          "Pottery Barn", "Restoration Hardware", "At Home", "Floor & Decor"),
 
-      // Retail (Electronics/Office) - HIGH VALUE FRAUD TARGETS
-      "Best Buy", "Micro Center", "Apple Store", "Microsoft Store", "GameStop", "Staples",
-      "Office Depot", "OfficeMax", "CDW", "Newegg.com",
+      // Retail (Electronics/Office) - high-value fraud targets
+      new Group(Category.ELECTRONICS, 1.0,
+          "Best Buy", "Micro Center", "Apple Store", "Microsoft Store", "GameStop", "Staples", "Office Depot",
+          "OfficeMax", "CDW", "Newegg.com"),
 
       // Retail (Apparel)
-      "Macy's", "Nordstrom", "Dillard's", "Kohl's", "JCPenney", "Saks Fifth Avenue", "Neiman Marcus",
-      "Bloomingdale's", "Gap", "Old Navy", "Banana Republic", "J.Crew", "H&M", "Zara", "Uniqlo",
-      "Forever 21", "American Eagle Outfitters", "Abercrombie & Fitch", "Hollister Co.", "Lululemon",
-      "Nike", "Adidas", "Puma", "Under Armour", "Reebok", "Dick's Sporting Goods", "Academy Sports + Outdoors",
-      "REI", "Cabela's", "Bass Pro Shops", "Foot Locker", "Victoria's Secret", "Bath & Body Works",
-      "The Children's Place", "Carter's",
+      new Group(Category.APPAREL, 1.0,
+          "Macy's", "Nordstrom", "Dillard's", "Kohl's", "JCPenney", "Saks Fifth Avenue", "Neiman Marcus",
+          "Bloomingdale's", "Gap", "Old Navy", "Banana Republic", "J.Crew", "H&M", "Zara", "Uniqlo",
+          "Forever 21", "American Eagle Outfitters", "Abercrombie & Fitch", "Hollister Co.", "Lululemon",
+          "Nike", "Adidas", "Puma", "Under Armour", "Reebok", "Dick's Sporting Goods",
+          "Academy Sports + Outdoors", "REI", "Cabela's", "Bass Pro Shops", "Foot Locker", "Victoria's Secret",
+          "Bath & Body Works", "The Children's Place", "Carter's"),
 
       // Retail (Pharmacies)
-      "CVS Pharmacy", "Walgreens", "Rite Aid", "GoodRx",
+      new Group(Category.PHARMACY, 3.0,
+          "CVS Pharmacy", "Walgreens", "Rite Aid", "GoodRx"),
 
       // Retail (Discount)
-      "Dollar General", "Dollar Tree", "Family Dollar", "Five Below", "Big Lots", "Ollie's Bargain Outlet",
+      new Group(Category.DISCOUNT, 2.0,
+          "Dollar General", "Dollar Tree", "Family Dollar", "Five Below", "Big Lots", "Ollie's Bargain Outlet"),
 
-      // Retail (Online) - HIGH VALUE FRAUD TARGETS
-      "Amazon.com", "eBay", "Etsy", "Wayfair", "Overstock.com", "Zappos", "Chewy", "Wish.com",
+      // Retail (Online) - high-value fraud targets
+      new Group(Category.ONLINE_RETAIL, 3.0,
+          "Amazon.com", "eBay", "Etsy", "Wayfair", "Overstock.com", "Zappos", "Chewy", "Wish.com"),
 
       // Restaurants (Fast Food)
-      "McDonald's", "Burger King", "Wendy's", "Taco Bell", "Chick-fil-A", "Subway", "KFC",
-      "Popeyes", "Arby's", "Jack in the Box", "Sonic Drive-In", "Whataburger", "In-N-Out Burger",
-      "Five Guys", "Shake Shack", "Pizza Hut", "Domino's", "Papa John's", "Little Caesars",
-      "Panda Express", "Chipotle Mexican Grill", "Qdoba", "Moe's Southwest Grill", "Del Taco",
+      new Group(Category.FAST_FOOD, 4.0,
+          "McDonald's", "Burger King", "Wendy's", "Taco Bell", "Chick-fil-A", "Subway", "KFC", "Popeyes",
+          "Arby's", "Jack in the Box", "Sonic Drive-In", "Whataburger", "In-N-Out Burger", "Five Guys",
+          "Shake Shack", "Pizza Hut", "Domino's", "Papa John's", "Little Caesars", "Panda Express",
+          "Chipotle Mexican Grill", "Qdoba", "Moe's Southwest Grill", "Del Taco"),
 
       // Restaurants (Casual/Coffee)
-      "Starbucks", "Dunkin'", "Panera Bread", "Tim Hortons", "Peet's Coffee", "The Coffee Bean & Tea Leaf",
-      "Applebee's", "Chili's Grill & Bar", "TGI Fridays", "Olive Garden", "Red Lobster", "Outback Steakhouse",
-      "Texas Roadhouse", "LongHorn Steakhouse", "The Cheesecake Factory", "Red Robin", "Buffalo Wild Wings",
-      "Denny's", "IHOP", "Cracker Barrel", "Waffle House", "P.F. Chang's",
+      new Group(Category.RESTAURANT, 3.0,
+          "Starbucks", "Dunkin'", "Panera Bread", "Tim Hortons", "Peet's Coffee", "The Coffee Bean & Tea Leaf",
+          "Applebee's", "Chili's Grill & Bar", "TGI Fridays", "Olive Garden", "Red Lobster",
+          "Outback Steakhouse", "Texas Roadhouse", "LongHorn Steakhouse", "The Cheesecake Factory", "Red Robin",
+          "Buffalo Wild Wings", "Denny's", "IHOP", "Cracker Barrel", "Waffle House", "P.F. Chang's"),
 
       // Tech & Services
-      "Google", "Microsoft", "Apple Inc.", "Meta Platforms", "Amazon Web Services", "Netflix", "Spotify",
-      "Hulu", "Disney+", "Salesforce", "Oracle", "IBM", "Intel", "AMD", "Nvidia", "Dell Technologies",
-      "HP Inc.", "Cisco Systems", "Adobe", "Zoom Video", "Uber", "Lyft", "DoorDash", "Grubhub",
-      "Instacart", "Airbnb", "PayPal", "Block (Square)", "Stripe", "Shopify", "GoDaddy", "Intuit",
-      "Dropbox", "Slack", "X (Twitter)",
-
-      // Travel & Auto
-      "Delta Air Lines", "American Airlines", "United Airlines", "Southwest Airlines", "JetBlue",
-      "Alaska Airlines", "Spirit Airlines", "Frontier Airlines", "Marriott International", "Hilton",
-      "Hyatt Hotels", "IHG Hotels & Resorts", "Wyndham Hotels", "Choice Hotels", "Best Western",
-      "Expedia", "Booking.com", "Enterprise Rent-A-Car", "Hertz", "Avis", "Budget", "AutoZone",
-      "O'Reilly Auto Parts", "Advance Auto Parts", "NAPA Auto Parts", "Pep Boys",
-
-      // Charities & Non-Profits - FRAUD DRIP TARGETS
-      "American Red Cross", "Doctors Without Borders", "UNICEF", "Habitat for Humanity",
-      "St. Jude Children's Research Hospital", "The Humane Society", "WWF (World Wildlife Fund)",
-      "Sierra Club", "The Nature Conservancy", "Feeding America", "Goodwill Industries",
-      "The Salvation Army", "United Way", "Boys & Girls Clubs of America", "Make-A-Wish Foundation",
-      "Susan G. Komen", "American Cancer Society", "American Heart Association", "Save the Children",
-      "Shriners Hospitals for Children", "Wounded Warrior Project", "ASPCA", "Charity: Water",
-
-      // Utilities & Telecom
-      "AT&T", "Verizon", "T-Mobile", "Comcast (Xfinity)", "Charter (Spectrum)", "Cox Communications",
-      "Duke Energy", "NextEra Energy", "Southern Company", "Dominion Energy", "Exelon",
-      "Pacific Gas and Electric (PG&E)", "Con Edison",
-
-      // Finance & Insurance
-      "Bank of America", "JPMorgan Chase", "Wells Fargo", "Citigroup", "Goldman Sachs", "Morgan Stanley",
-      "U.S. Bank", "PNC", "Capital One", "American Express", "Visa", "Mastercard", "Discover",
-      "Geico", "Progressive", "State Farm", "Allstate", "Liberty Mutual",
-
-      // Miscellaneous
-      "7-Eleven", "Circle K", "Shell", "ExxonMobil", "BP", "Chevron", "Marathon Petroleum",
-      "Sheetz", "Wawa", "The LEGO Group", "Mattel", "Hasbro", "The Walt Disney Company",
-      "Paramount", "Warner Bros.", "Sony Pictures", "Universal Pictures")
-  );
-
-  // Filtered lists for specific fraud scenarios
-  private static final List<String> CHARITY_RECEIVERS = Collections.unmodifiableList(Arrays.asList(
-      "American Red Cross", "Doctors Without Borders", "UNICEF", "Habitat for Humanity",
-      "St. Jude Children's Research Hospital", "The Humane Society", "WWF (World Wildlife Fund)",
-      "Sierra Club", "The Nature Conservancy", "Feeding America", "Goodwill Industries",
-      "The Salvation Army", "United Way", "Boys & Girls Clubs of America", "Make-A-Wish Foundation",
-      "Susan G. Komen", "American Cancer Society", "American Heart Association", "Save the Children",
-      "Shriners Hospitals for Children", "Wounded Warrior Project", "ASPCA", "Charity: Water"
-  ));
-
-  private static final List<String> HIGH_VALUE_FRAUD_TARGETS = Collections.unmodifiableList(Arrays.asList(
-      // Retail (Electronics/Office)
-      "Best Buy", "Micro Center", "Apple Store", "Microsoft Store", "GameStop", "Staples",
-      "Office Depot", "OfficeMax", "CDW", "Newegg.com",
-      // Retail (Online)
-      "Amazon.com", "eBay", "Etsy", "Wayfair", "Overstock.com", "Zappos", "Chewy", "Wish.com"
-  ));
+      new Group(Category.TECH_SERVICES, 1.0,
+          "Google", "Microsoft", "Apple Inc.", "Meta Platforms", "Amazon Web Services", "Netflix", "Spotify",
+          "Hulu", "Disney+", "Salesforce", "Oracle", "IBM", "Intel", "AMD", "Nvidia", "Dell Technologies",
+          "HP Inc.", "Cisco Systems", "Adobe", "Zoom Video", "Uber", "Lyft", "DoorDash", "Grubhub", "Instacart",
+          "Airbnb", "PayPal", "Block (Square)", "Stripe", "Shopify", "GoDaddy", "Intuit", "Dropbox", "Slack",
+          "X (Twitter)"),
+
+      // Travel (Airlines)
+      new Group(Category.AIRLINE, 0.3,
+          "Delta Air Lines", "American Airlines", "United Airlines", "Southwest Airlines", "JetBlue",
+          "Alaska Airlines", "Spirit Airlines", "Frontier Airlines"),
+
+      // Travel (Hotels)
+      new Group(Category.LODGING, 0.4,
+          "Marriott International", "Hilton", "Hyatt Hotels", "IHG Hotels & Resorts", "Wyndham Hotels",
+          "Choice Hotels", "Best Western"),
+
+      // Travel (Agencies)
+      new Group(Category.TRAVEL_AGENCY, 0.5,
+          "Expedia", "Booking.com"),
+
+      // Travel (Car Rental)
+      new Group(Category.CAR_RENTAL, 0.3,
+          "Enterprise Rent-A-Car", "Hertz", "Avis", "Budget"),
+
+      // Auto Parts
+      new Group(Category.AUTO_PARTS, 0.7,
+          "AutoZone", "O'Reilly Auto Parts", "Advance Auto Parts", "NAPA Auto Parts", "Pep Boys"),
+
+      // Charities & Non-Profits - fraud drip targets
+      new Group(Category.CHARITY, 0.2,
+          "American Red Cross", "Doctors Without Borders", "UNICEF", "Habitat for Humanity",
+          "St. Jude Children's Research Hospital", "The Humane Society", "WWF (World Wildlife Fund)",
+          "Sierra Club", "The Nature Conservancy", "Feeding America", "Goodwill Industries",
+          "The Salvation Army", "United Way", "Boys & Girls Clubs of America", "Make-A-Wish Foundation",
+          "Susan G. Komen", "American Cancer Society", "American Heart Association", "Save the Children",
+          "Shriners Hospitals for Children", "Wounded Warrior Project", "ASPCA", "Charity: Water"),
+
+      // Telecom
+      new Group(Category.TELECOM, 1.0,
+          "AT&T", "Verizon", "T-Mobile", "Comcast (Xfinity)", "Charter (Spectrum)", "Cox Communications"),
+
+      // Utilities
+      new Group(Category.UTILITIES, 1.0,
+          "Duke Energy", "NextEra Energy", "Southern Company", "Dominion Energy", "Exelon",
+          "Pacific Gas and Electric (PG&E)", "Con Edison"),
+
+      // Finance
+      new Group(Category.FINANCIAL, 0.5,
+          "Bank of America", "JPMorgan Chase", "Wells Fargo", "Citigroup", "Goldman Sachs", "Morgan Stanley",
+          "U.S. Bank", "PNC", "Capital One", "American Express", "Visa", "Mastercard", "Discover"),
+
+      // Insurance
+      new Group(Category.INSURANCE, 0.5,
+          "Geico", "Progressive", "State Farm", "Allstate", "Liberty Mutual"),
+
+      // Fuel & Convenience
+      new Group(Category.FUEL, 3.0,
+          "7-Eleven", "Circle K", "Shell", "ExxonMobil", "BP", "Chevron", "Marathon Petroleum", "Sheetz",
+          "Wawa"),
+
+      // Toys
+      new Group(Category.TOYS, 0.3,
+          "The LEGO Group", "Mattel", "Hasbro"),
+
+      // Entertainment
+      new Group(Category.ENTERTAINMENT, 0.5,
+          "The Walt Disney Company", "Paramount", "Warner Bros.", "Sony Pictures", "Universal Pictures"));
 
 
   /**
-   * POJO for the transaction event. Fields must exactly match the BigQuery schema.
-   * The 'source' attribute has been removed to align with BigQuery's schema.
+   * The transaction event. Serialized by a {@link TransactionEncoder} into the
+   * fields of the BigQuery schema (credit_card_number, receiver, amount,
+   * ip_address, timestamp). The 'source' attribute has been removed to align
+   * with BigQuery's schema.
    */
   static class TransactionEvent {
-    // Field names must exactly match the BigQuery schema columns (e.g., credit_card_number)
-    String credit_card_number;
-    String receiver;
-    double amount;
-    String ip_address;
-    String timestamp;
-
-    public TransactionEvent(String creditCardNumber, String receiver, double amount, String ipAddress,
-        long epochMilli) {
-      this.credit_card_number = creditCardNumber;
-      this.receiver = receiver;
-      this.amount = amount;
-      this.ip_address = ipAddress;
-      // Format Epoch Milliseconds to BQ DATETIME string
-      Instant instant = Instant.ofEpochMilli(epochMilli);
-      LocalDateTime ldt = LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
-      this.timestamp = ldt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    final int cardIndex; // Index into the CardCatalog; the number is rendered at serialization
+    final int receiverId; // Id in the MerchantDictionary
+    final long amountCents;
+    final int ipAddress; // Packed IPv4 address
+    final long epochMilli; // Written as a BQ DATETIME string at serialization
+
+    public TransactionEvent(int cardIndex, int receiverId, long amountCents, int ipAddress, long epochMilli) {
+      this.cardIndex = cardIndex;
+      this.receiverId = receiverId;
+      this.amountCents = amountCents;
+      this.ipAddress = ipAddress;
+      this.epochMilli = epochMilli;
     }
   }
 
   // --- Static Utility Methods ---
 
   /**
-   * Programmatically generates a list of fake credit card numbers.
+   * Publishes a single transaction event to the sink (normally Pub/Sub).
+   * The sourceTag is used only for console logging, not included in the payload;
+   * intendedNanos is the event's scheduled send time (see RateController.acquire).
    */
-  private static List<String> generateCardNumbers(int count) {
-    List<String> cardNumbers = new ArrayList<>(count);
-    for (int i = 0; i < count; i++) {
-      // 40% Visa-like, 40% Mastercard-like, 20% Amex-like
-      int type = RANDOM.nextInt(10);
-      if (type < 4) {
-        // Visa-like (16 digits, starting with 4)
-        cardNumbers.add("4200" + generateRandomDigits(12));
-      } else if (type < 8) {
-        // Mastercard-like (16 digits, starting with 5)
-        cardNumbers.add("5500" + generateRandomDigits(12));
-      } else {
-        // Amex-like (15 digits, starting with 3)
-        cardNumbers.add("3700" + generateRandomDigits(11));
-      }
-    }
-    System.out.println("Generated " + cardNumbers.size() + " card numbers.");
-    return cardNumbers;
-  }
+  static void publishMessage(TransactionSink sink, CardCatalog cards, TransactionMessageEncoder encoder,
+      TransactionEvent event, String sourceTag, long intendedNanos) throws InterruptedException {
+    String cardNumber = cards.cardNumber(event.cardIndex);
 
-  /**
-   * Generates a random string of digits of a given length.
-   */
-  private static String generateRandomDigits(int length) {
-    StringBuilder sb = new StringBuilder(length);
-    for (int i = 0; i < length; i++) {
-      sb.append(RANDOM.nextInt(10));
+    // Log based on source/type
+    boolean fraud = sourceTag.contains("FRAUD");
+    if (fraud) {
+      String cardSuffix = cardNumber.substring(cardNumber.length() - 4);
+      System.out.printf(">>> [Card: ...%s, %s, IP: %s, Amt: $%d.%02d, Time: %s, Source: %s]%n",
+          cardSuffix, MERCHANTS.name(event.receiverId), CardIpStore.format(event.ipAddress),
+          event.amountCents / 100, event.amountCents % 100, TimestampEncoder.format(event.epochMilli),
+          sourceTag);
     }
-    return sb.toString();
-  }
-
-  private static String getRandomCardNumber() {
-    return CARD_NUMBERS.get(RANDOM.nextInt(CARD_NUMBERS.size()));
-  }
-
-  private static String getRandomReceiver() {
-    // For general transactions, use the full list
-    return ALL_RECEIVERS.get(RANDOM.nextInt(ALL_RECEIVERS.size()));
-  }
 
-  private static String getCharityReceiver() {
-    // For Scenario 1 drip transaction
-    return CHARITY_RECEIVERS.get(RANDOM.nextInt(CHARITY_RECEIVERS.size()));
-  }
-
-  private static String getFraudTargetReceiver() {
-    // For high-value fraud transaction
-    return HIGH_VALUE_FRAUD_TARGETS.get(RANDOM.nextInt(HIGH_VALUE_FRAUD_TARGETS.size()));
-  }
-
-  private static double getRandomAmount() {
-    // Random amount between $1.00 and $500.00 (Normal transaction range)
-    double amount = 1.0 + (500.0 - 1.0) * RANDOM.nextDouble();
-    // Round to two decimal places
-    return Math.round(amount * 100.0) / 100.0;
-  }
-
-  private static double getRandomFraudAmount() {
-    // Random amount between FRAUD_MIN_AMOUNT and FRAUD_MAX_AMOUNT (High value)
-    double amount = FRAUD_MIN_AMOUNT + (FRAUD_MAX_AMOUNT - FRAUD_MIN_AMOUNT) * RANDOM.nextDouble();
-    // Round to two decimal places
-    return Math.round(amount * 100.0) / 100.0;
-  }
+    // 1. Build the message with data and ordering key (card number)
+    PubsubMessage pubsubMessage = encoder.encode(event, cardNumber);
 
-  /** Generates a new random IPv4 address. */
-  private static String generateNewRandomIp() {
-    return RANDOM.nextInt(256) + "." + RANDOM.nextInt(256) + "." +
-        RANDOM.nextInt(256) + "." + RANDOM.nextInt(256);
+    // 2. Hand the message to the sink. For Pub/Sub it is published asynchronously through the card's
+    // Publisher, which retries and resumes failed keys; it waits (or sheds the event) while too many
+    // messages are in flight.
+    sink.publish(pubsubMessage, fraud, intendedNanos);
   }
 
   /**
-   * Retrieves the current IP address for a card, applying stickiness and
-   * a small chance of change.
+   * Creates an ordering-enabled Publisher for the regional endpoint, or for
+   * the in-process fake server when {@code fakePubSub} is not null. A null
+   * settings argument keeps the client library's batching defaults; a null
+   * compression threshold leaves gRPC compression off.
    */
-  private static String getIpForCard(String cardNumber) {
-    if (!cardIpMap.containsKey(cardNumber)) {
-      // If new card, assign a "home" IP
-      String homeIp = generateNewRandomIp();
-      cardIpMap.put(cardNumber, homeIp);
-      return homeIp;
+  static Publisher createPublisher(ProjectTopicName topicName, String endpoint, FakePubSubServer fakePubSub,
+      PublisherSettings settings, Long compressionBytesThreshold) throws IOException {
+    Publisher.Builder builder = Publisher.newBuilder(topicName)
+        .setEnableMessageOrdering(true);
+    if (fakePubSub != null) {
+      // The fake server is reached over an in-process channel and needs no credentials
+      builder.setChannelProvider(fakePubSub.channelProvider())
+          .setCredentialsProvider(NoCredentialsProvider.create());
     } else {
-      // Small chance to change the IP (simulate travel/new network)
-      if (RANDOM.nextDouble() < IP_CHANGE_PROBABILITY) {
-        String newIp = generateNewRandomIp();
-        cardIpMap.put(cardNumber, newIp);
-        return newIp;
-      } else {
-        // Return the existing "home" IP
-        return cardIpMap.get(cardNumber);
-      }
+      builder.setEndpoint(endpoint); // Use the derived endpoint
     }
-  }
-
-  /**
-   * Publishes a single transaction event to Pub/Sub.
-   * The sourceTag is used only for console logging, not included in the payload.
-   */
-  private static void publishMessage(Publisher publisher, TransactionEvent event, String sourceTag) {
-    // Log based on source/type
-    if (sourceTag.contains("FRAUD")) {
-      String cardSuffix = event.credit_card_number.substring(event.credit_card_number.length() - 4);
-      System.out.printf(">>> [Card: ...%s, %s, IP: %s, Amt: $%.2f, Time: %s, Source: %s]%n",
-          cardSuffix, event.receiver, event.ip_address, event.amount, event.timestamp, sourceTag);
+    if (settings != null) {
+      settings.applyTo(builder);
     }
-
-    String jsonMessage = GSON.toJson(event);
-
-    // 1. Build the message with data and ordering key (card number)
-    ByteString data = ByteString.copyFromUtf8(jsonMessage);
-    PubsubMessage pubsubMessage = PubsubMessage.newBuilder()
-        .setData(data)
-        .setOrderingKey(event.credit_card_number) // Key is the card number for ordered processing
-        .build();
-
-    // 2. Publish asynchronously
-    ApiFuture<String> future = publisher.publish(pubsubMessage);
-
-    // 3. Add a callback to log failure
-    ApiFutures.addCallback(future, new ApiFutureCallback<String>() {
-      @Override
-      public void onFailure(Throwable t) {
-        System.err.println(" -> Error publishing message: " + t.getMessage());
-      }
-
-      @Override
-      public void onSuccess(String messageId) {
-        // Commented out for cleaner output
-        // System.out.println(" -> Published message with ID: " + messageId);
-      }
-    }, MoreExecutors.directExecutor());
+    if (compressionBytesThreshold != null) {
+      // Publish requests of at least this many bytes are gzip-compressed on the wire
+      builder.setEnableCompression(true).setCompressionBytesThreshold(compressionBytesThreshold);
+    }
+    return builder.build();
   }
 
   // --- Main Execution ---
@@ -338,143 +273,147 @@ public class TransactionGenerator {
   public static void main(String[] args) throws Exception {
 
     // --- 1. Parse Command Line Arguments ---
-    if (args.length < 2) {
-      System.err.println("Error: PROJECT_ID and REGION must be provided as command-line arguments.");
-      System.err.println("Usage: java TransactionGenerator <PROJECT_ID> <REGION>");
+    GeneratorOptions options;
+    try {
+      options = GeneratorOptions.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.err.println(GeneratorOptions.USAGE);
       System.exit(1);
+      return;
     }
 
-    final String projectId = args[0];
-    final String region = args[1];
+    // Against the fake server the project and region are only used in names
+    final String projectId = options.projectId != null ? options.projectId : FAKE_PUBSUB_PROJECT_ID;
+    final String region = options.region != null ? options.region : FAKE_PUBSUB_REGION;
+
+    // With an offline sink writing to stdout, the console output moves to stderr
+    PrintStream stdout = System.out;
+    if (options.sink == TransactionSink.Type.NDJSON && "-".equals(options.output)) {
+      System.setOut(System.err);
+    }
 
     final String endpoint = region + "-pubsub.googleapis.com:443";
-    ProjectTopicName topicName = ProjectTopicName.of(projectId, TOPIC_ID);
-    Publisher publisher = null;
+    ProjectTopicName topicName = options.sink == TransactionSink.Type.PUBSUB
+        ? ProjectTopicName.of(projectId, TOPIC_ID)
+        : null;
+    TransactionSink sink = null;
+    FakePubSubServer fakePubSub = null;
 
     try {
-      // Initialize Publisher with Ordering and Endpoint
-      publisher = Publisher.newBuilder(topicName)
-          .setEnableMessageOrdering(true)
-          .setEndpoint(endpoint) // Use the derived endpoint
-          .build();
-
-      System.out.println("Starting transaction generation for topic: " + topicName);
-      System.out.println("Using endpoint: " + endpoint);
-      System.out.println("Using static list of " + ALL_RECEIVERS.size() + " real receivers.");
-      System.out.printf("Injecting multi-step fraud sequences with %.3f%% probability.%n",
-          FRAUD_SCENARIO_PROBABILITY * 100);
-      System.out.println("Press Ctrl+C to stop.");
+      if (options.fakePubSub) {
+        fakePubSub = new FakePubSubServer((long) (options.fakePubSubLatencyMillis * 1000),
+            options.fakePubSubErrorRate, options.fakePubSubErrorCode, FAKE_PUBSUB_ACK_LOG_CAPACITY).start();
+        System.out.printf("Publishing to an in-process fake Pub/Sub server (%.3f ms latency, %.2f%% of requests"
+                + " fail with %s).%n", options.fakePubSubLatencyMillis, options.fakePubSubErrorRate * 100,
+            options.fakePubSubErrorCode);
+      }
 
-      while (true) {
-        // Use a LinkedHashMap to hold the events and their corresponding source tags for logging/debugging
-        Map<TransactionEvent, String> eventsToPublish = new LinkedHashMap<>();
-        String cardNumber;
-
-        // --- 0. Advance the simulated clock normally (This time is the base time for the next transaction) ---
-        long incrementRange = MAX_TIME_INCREMENT_MS - MIN_TIME_INCREMENT_MS + 1;
-        long timeIncrement = MIN_TIME_INCREMENT_MS + RANDOM.nextInt((int) incrementRange);
-        simulatedCurrentTime += timeIncrement;
-
-        if (RANDOM.nextDouble() < FRAUD_SCENARIO_PROBABILITY) {
-          // --- INJECTING MULTI-STEP FRAUD SCENARIO ---
-          cardNumber = getRandomCardNumber();
-          String fraudIp = generateNewRandomIp(); // New, non-sticky IP for the compromised activity
-
-          // Ensure the card's "home" IP is set for the normal path, even if we use a new one now.
-          getIpForCard(cardNumber);
-
-          if (RANDOM.nextBoolean()) {
-            // --- Scenario 1: Charity Drip -> Large Purchase (2 steps) ---
-
-            // Step 1: Small Charity Transaction (Drip)
-            long step1Time = simulatedCurrentTime;
-            TransactionEvent step1 = new TransactionEvent(
-                cardNumber,
-                getCharityReceiver(),
-                getRandomAmount(), // Small value, blending in
-                fraudIp,
-                step1Time
-            );
-            eventsToPublish.put(step1, "FRAUD_SCENARIO_1_CHARITY_DRIP");
-
-            // Step 2: Large High-Value Purchase (Exploitation)
-            long step2Time = step1Time + FRAUD_SHORT_DELAY_MS;
-            TransactionEvent step2 = new TransactionEvent(
-                cardNumber,
-                getFraudTargetReceiver(),
-                getRandomFraudAmount(), // High value, target category
-                fraudIp,
-                step2Time
-            );
-            eventsToPublish.put(step2, "FRAUD_SCENARIO_1_LARGE_PURCHASE");
-
-            // Advance the simulated clock by the time passed in the sequence for the next iteration
-            simulatedCurrentTime = step2Time;
-
-          } else {
-            // --- Scenario 2: Two Small Drips -> Large Purchase (3 steps) ---
-
-            // Step 1: Small Transaction 1 (Micro-Drip 1)
-            long step1Time = simulatedCurrentTime;
-            TransactionEvent step1 = new TransactionEvent(
-                cardNumber,
-                getRandomReceiver(), // General receiver
-                getRandomAmount(),
-                fraudIp,
-                step1Time
-            );
-            eventsToPublish.put(step1, "FRAUD_SCENARIO_2_MICRO_DRIP_1");
-
-            // Step 2: Small Transaction 2 (Micro-Drip 2)
-            long step2Time = step1Time + FRAUD_SHORT_DELAY_MS;
-            TransactionEvent step2 = new TransactionEvent(
-                cardNumber,
-                getRandomReceiver(), // General receiver
-                getRandomAmount(),
-                fraudIp,
-                step2Time
-            );
-            eventsToPublish.put(step2, "FRAUD_SCENARIO_2_MICRO_DRIP_2");
-
-            // Step 3: Large High-Value Purchase (Exploitation)
-            long step3Time = step2Time + FRAUD_SHORT_DELAY_MS;
-            TransactionEvent step3 = new TransactionEvent(
-                cardNumber,
-                getFraudTargetReceiver(),
-                getRandomFraudAmount(), // High value, target category
-                fraudIp,
-                step3Time
-            );
-            eventsToPublish.put(step3, "FRAUD_SCENARIO_2_LARGE_PURCHASE");
-
-            // Advance the simulated clock by the time passed in the sequence for the next iteration
-            simulatedCurrentTime = step3Time;
-          }
-
-        } else {
-          // --- GENERATE SINGLE NORMAL TRANSACTION (Default path) ---
-          cardNumber = getRandomCardNumber();
-          String receiver = getRandomReceiver();
-          double amount = getRandomAmount();
-          String ipAddress = getIpForCard(cardNumber); // Use "sticky" IP logic
-
-          // Create the single normal event
-          TransactionEvent normalEvent = new TransactionEvent(
-              cardNumber, receiver, amount, ipAddress, simulatedCurrentTime
-          );
-          eventsToPublish.put(normalEvent, "NORMAL");
-        }
+      // All randomness is split off one seeded root stream, so a run can be reproduced with --seed
+      long seed = options.seed != null ? options.seed : RandomStreams.randomSeed();
+      long simulatedStartTime = options.startTime != null
+          ? options.startTime
+          : System.currentTimeMillis() - SIMULATED_START_OFFSET_MS;
+      SplittableGenerator rootRandom = RandomStreams.root(seed);
+
+      CardCatalog cards = new CardCatalog(options.cards, rootRandom.split());
+      // One primitive IP slot per card, shared by all generation threads (each only touches its own cards)
+      CardIpStore cardIps = new CardIpStore(cards.size());
+
+      if (options.autotune) {
+        runAutoTuner(options, topicName, endpoint, fakePubSub, cards, cardIps, rootRandom.split(),
+            simulatedStartTime);
+        return;
+      }
 
+      if (options.sink == TransactionSink.Type.PUBSUB) {
+        sink = createPubSubSink(options, topicName, endpoint, fakePubSub);
+        System.out.println("Starting transaction generation for topic: " + topicName);
+        System.out.println("Using endpoint: " + (fakePubSub != null ? "in-process fake" : endpoint));
+      } else {
+        sink = createOfflineSink(options, stdout);
+        System.out.println("Starting transaction generation to the " + options.sink.name().toLowerCase()
+            + " sink" + (options.sink == TransactionSink.Type.NDJSON || options.sink == TransactionSink.Type.TAPE
+                ? " (" + options.output + ")." : "."));
+      }
+      System.out.println("Simulating " + cards.size() + " cards.");
+      System.out.println("Using a catalogue of " + MERCHANTS.size() + " real merchants in "
+          + MERCHANTS.categoryCount() + " categories.");
+      System.out.println("Random seed: " + seed + ", simulated start time: " + simulatedStartTime);
+      System.out.println("Payload format: " + options.format.name().toLowerCase()
+          + ", codec: " + options.payloadCodec.name().toLowerCase() + ".");
+
+      // Every generation thread (or pooled slot) gets its own encoder, as encoders reuse their buffers
+      Supplier<TransactionMessageEncoder> encoders =
+          () -> new TransactionMessageEncoder(cards, MERCHANTS, options.format, options.payloadCodec);
+
+      // Fraud scenarios come from the bundled configuration unless --fraud-scenarios names another file
+      FraudScenarioRegistry scenarios = FraudScenarioRegistry.load(options.fraudScenarios);
+
+      // Which cards and merchants come up most often; the lowest indexes are the most popular
+      Popularity popularity = new Popularity(options.cardZipf, options.merchantZipf, MERCHANTS);
+
+      EventGenerator generator;
+      if (options.mode == GeneratorOptions.Mode.REPLAY) {
+        // Recorded messages are republished as they are; the generation options above do not apply
+        generator = new TapeReplayer(Path.of(options.tape), sink, options.workers, options.replaySpeed);
+        System.out.println("Replaying " + options.tape + " on " + options.workers + " thread(s) at "
+            + (options.replaySpeed > 0 ? options.replaySpeed + "x the recorded pace." : "maximum speed."));
+      } else if (options.mode == GeneratorOptions.Mode.VIRTUAL_CARDS) {
+        // Every active card is a virtual thread; the rate follows from the card count and time scale
+        int activeCards = options.activeCards != null ? options.activeCards : cards.size();
+        generator = new CardLifecycleSimulation(
+            cards, cardIps, sink, encoders, scenarios, popularity, activeCards, options.timeScale,
+            rootRandom, simulatedStartTime);
+        System.out.println("Running " + activeCards + " live card(s) on virtual threads at "
+            + options.timeScale + "x simulated time.");
+      } else if (options.mode == GeneratorOptions.Mode.TIMELINES) {
+        // The timelines of all active cards are merged by event time on one thread
+        int activeCards = options.activeCards != null ? options.activeCards : cards.size();
+        generator = new TimelineMerge(cards, cardIps, sink, encoders, scenarios, popularity, activeCards,
+            options.rate, rootRandom.split(), simulatedStartTime);
+        System.out.println("Merging the timelines of " + activeCards + " card(s) by event time.");
+        System.out.println(options.rate > 0
+            ? "Target rate: " + options.rate + " events/second."
+            : "Target rate: unlimited.");
+      } else {
+        // Each worker publishes its share of the target rate for its own shard of cards
+        GenerationEngine engine = new GenerationEngine(
+            options.workers, cards, cardIps, sink, encoders, scenarios, popularity, options.fraudStepTimeScale,
+            options.rate, rootRandom, simulatedStartTime);
+        generator = engine;
+        System.out.println("Running " + engine.workerCount() + " generation worker(s).");
+        System.out.println(options.rate > 0
+            ? "Target rate: " + options.rate + " events/second."
+            : "Target rate: unlimited.");
+      }
+      if (options.mode != GeneratorOptions.Mode.REPLAY) {
+        System.out.printf("Injecting multi-step fraud sequences with %.3f%% probability.%n",
+            FRAUD_SCENARIO_PROBABILITY * 100);
+        System.out.println("Fraud scenarios: " + scenarios + ".");
+        System.out.println("Popularity: " + popularity + ".");
+        if (options.mode == GeneratorOptions.Mode.WORKERS) {
+          System.out.println(options.fraudStepTimeScale > 0
+              ? "Scenario steps are released at their delay / " + options.fraudStepTimeScale + " in wall-clock time."
+              : "Scenario steps are sent back to back.");
+        }
+      }
+      System.out.println("Press Ctrl+C to stop.");
 
-        // --- Publish ALL Messages for this iteration/scenario ---
-        for (Map.Entry<TransactionEvent, String> entry : eventsToPublish.entrySet()) {
-          publishMessage(publisher, entry.getKey(), entry.getValue());
+      // Ctrl+C does not unwind this thread, so a shutdown hook stops the generator and then waits while
+      // the finally block below flushes the sink and prints the run totals before the JVM exits
+      Thread mainThread = Thread.currentThread();
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        generator.stop();
+        try {
+          mainThread.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt(); // Restore the interrupted status
         }
+      }, "generator-shutdown"));
 
-        // 7. Wait for 1 second (real time) before publishing the next event
-        // This controls the rate at which batches of events (1 normal or 2/3 fraud) are sent.
-        Thread.sleep(1000);
-      }
+      generator.start();
+      generator.awaitTermination();
     } catch (InterruptedException e) {
       System.out.println("Transaction generator interrupted. Shutting down.");
       Thread.currentThread().interrupt(); // Restore the interrupted status
@@ -482,13 +421,81 @@ public class TransactionGenerator {
       System.err.println("An error occurred: " + e.getMessage());
       e.printStackTrace();
     } finally {
-      // 8. Shut down the publisher gracefully
-      if (publisher != null) {
-        System.out.println("Shutting down publisher...");
-        publisher.shutdown();
-        publisher.awaitTermination(1, TimeUnit.MINUTES);
-        System.out.println("Publisher shut down.");
+      // 8. Shut down the sink (for Pub/Sub, the publishers) gracefully
+      if (sink != null) {
+        System.out.println("Shutting down " + options.sink.name().toLowerCase() + " sink...");
+        sink.shutdown();
+        System.out.println("Sink shut down.");
+      }
+      if (fakePubSub != null) {
+        System.out.println(fakePubSub.summary());
+        fakePubSub.shutdown();
       }
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Creates the Pub/Sub sink: ordering-enabled Publishers for the regional
+   * endpoint with the selected batching profile, behind the in-flight limit.
+   */
+  private static ShardedPublisher createPubSubSink(GeneratorOptions options, ProjectTopicName topicName,
+      String endpoint, FakePubSubServer fakePubSub) throws IOException {
+    // Each Publisher has its own batching pipeline and channel; cards are split between them by key hash
+    List<Publisher> publishers = new ArrayList<>(options.publishers);
+    for (int i = 0; i < options.publishers; i++) {
+      publishers.add(createPublisher(topicName, endpoint, fakePubSub, options.publisherProfile.settings(),
+          options.grpcCompressionThreshold));
+    }
+    ShardedPublisher sink = new ShardedPublisher(publishers, new OutstandingLimiter(
+        options.maxOutstandingMessages, options.maxOutstandingBytes, options.backpressure));
+
+    System.out.println("Publishing through " + sink.shardCount() + " publisher(s), at most "
+        + options.maxOutstandingMessages + " message(s) / " + options.maxOutstandingBytes
+        + " bytes in flight (" + options.backpressure.name().toLowerCase() + " when full).");
+    System.out.println("Publisher profile: " + options.publisherProfile
+        + (options.publisherProfile.settings() != null ? " (" + options.publisherProfile.settings() + ")" : ""));
+    System.out.println(options.grpcCompressionThreshold != null
+        ? "gRPC compression for requests of " + options.grpcCompressionThreshold + "+ bytes."
+        : "gRPC compression off.");
+    return sink;
+  }
+
+  /** Creates one of the sinks that work without Google Cloud. */
+  private static TransactionSink createOfflineSink(GeneratorOptions options, PrintStream stdout)
+      throws IOException {
+    switch (options.sink) {
+      case RING:
+        return new MemoryRingSink(options.ringCapacity);
+      case NDJSON:
+        return new NdjsonSink("-".equals(options.output) ? stdout : Files.newOutputStream(Path.of(options.output)));
+      case TAPE:
+        return new TapeRecorder(Path.of(options.output));
+      default:
+        return new NullSink();
+    }
+  }
+
+  /** Sweeps Publisher batching settings against the topic and prints the recommended one. */
+  private static void runAutoTuner(GeneratorOptions options, ProjectTopicName topicName, String endpoint,
+      FakePubSubServer fakePubSub, CardCatalog cards, CardIpStore cardIps, RandomGenerator random, long simulatedStartTime)
+      throws IOException, InterruptedException {
+    // Flow control and executor threads come from the selected profile; only batching is swept
+    PublisherSettings base = options.publisherProfile.settings() != null
+        ? options.publisherProfile.settings()
+        : PublisherProfile.BALANCED.settings();
+    List<PubsubMessage> messages =
+        PublisherAutoTuner.sampleMessages(cards, cardIps,
+            new TransactionMessageEncoder(cards, MERCHANTS, options.format, options.payloadCodec), random,
+            simulatedStartTime, AUTOTUNE_SAMPLE_MESSAGES);
+    PublisherAutoTuner tuner = new PublisherAutoTuner(
+        settings -> createPublisher(topicName, endpoint, fakePubSub, settings, options.grpcCompressionThreshold),
+        base, messages,
+        Duration.ofSeconds(options.autotuneTrialSeconds), options.autotuneTargetP99Millis);
+
+    System.out.println("Auto-tuning publisher for topic: " + topicName);
+    System.out.println("Each trial runs for " + options.autotuneTrialSeconds + "s; target p99 latency: "
+        + options.autotuneTargetP99Millis + " ms.");
+    PublisherAutoTuner.Trial best = tuner.run();
+    System.out.println("Recommended setting: " + best);
+  }
+}
@@ -0,0 +1,212 @@
+package data_generator;
+
+import data_generator.TransactionGenerator.TransactionEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes a {@link TransactionEvent} as JSON straight into a reusable byte
+ * buffer, without reflection or intermediate Strings. The field names must
+ * exactly match the BigQuery schema columns. Receiver names come pre-encoded
+ * from the {@link MerchantDictionary}.
+ *
+ * Strings are escaped as required by RFC 8259 only ('"', '\\' and control
+ * characters), so receivers like "AT&T" and "Lowe's" are written as-is rather
+ * than HTML-escaped the way Gson does by default.
+ *
+ * Not thread-safe: each worker owns its own encoder.
+ */
+final class TransactionJsonEncoder implements TransactionEncoder {
+
+  private static final byte[] CARD_FIELD = ascii("{\"credit_card_number\":\"");
+  private static final byte[] RECEIVER_FIELD = ascii("\",\"receiver\":\"");
+  private static final byte[] AMOUNT_FIELD = ascii("\",\"amount\":");
+  private static final byte[] IP_FIELD = ascii(",\"ip_address\":\"");
+  private static final byte[] TIMESTAMP_FIELD = ascii("\",\"timestamp\":\"");
+  private static final byte[] END = ascii("\"}");
+
+  private static final byte[] HEX = ascii("0123456789abcdef");
+
+  // Tens and ones digit of 0..99
+  private static final byte[] DIGIT_TENS = new byte[100];
+  private static final byte[] DIGIT_ONES = new byte[100];
+
+  static {
+    for (int i = 0; i < 100; i++) {
+      DIGIT_TENS[i] = (byte) ('0' + i / 10);
+      DIGIT_ONES[i] = (byte) ('0' + i % 10);
+    }
+  }
+
+  private final CardCatalog cards;
+  private final MerchantDictionary merchants;
+  private final TimestampEncoder timestamps = new TimestampEncoder();
+  private byte[] buffer = new byte[256];
+  private int length;
+
+  TransactionJsonEncoder(CardCatalog cards, MerchantDictionary merchants) {
+    this.cards = cards;
+    this.merchants = merchants;
+  }
+
+  /** JSON-escapes a string and encodes it as UTF-8, without the surrounding quotes. */
+  static byte[] escape(String s) {
+    TransactionJsonEncoder encoder = new TransactionJsonEncoder(null, null);
+    encoder.putEscaped(s);
+    return Arrays.copyOf(encoder.buffer, encoder.length);
+  }
+
+  /**
+   * Encodes the event into the internal buffer and returns the number of
+   * bytes written. The bytes stay valid until the next call to encode.
+   */
+  @Override
+  public int encode(TransactionEvent event) {
+    length = 0;
+    put(CARD_FIELD);
+    ensureCapacity(CardCatalog.MAX_DIGITS);
+    length += cards.writeDigits(event.cardIndex, buffer, length);
+    put(RECEIVER_FIELD);
+    put(merchants.encodedName(event.receiverId));
+    put(AMOUNT_FIELD);
+    putCents(event.amountCents);
+    put(IP_FIELD);
+    putIp(event.ipAddress);
+    put(TIMESTAMP_FIELD);
+    ensureCapacity(TimestampEncoder.MAX_LENGTH);
+    length += timestamps.write(event.epochMilli, buffer, length);
+    put(END);
+    return length;
+  }
+
+  /** The buffer holding the last encoded event in its first {@link #length()} bytes. */
+  @Override
+  public byte[] buffer() {
+    return buffer;
+  }
+
+  int length() {
+    return length;
+  }
+
+  // --- Writers ---
+
+  private void put(byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, length, bytes.length);
+    length += bytes.length;
+  }
+
+  /**
+   * Writes an amount in cents as a decimal with exactly two fraction digits
+   * ("12.10", "7000.00"), two digits at a time from a lookup table.
+   */
+  private void putCents(long cents) {
+    ensureCapacity(24);
+    if (cents < 0) {
+      buffer[length++] = '-';
+      cents = -cents;
+    }
+    long whole = cents / 100;
+    int fraction = (int) (cents - whole * 100);
+
+    int pos = length + decimalDigits(whole);
+    length = pos + 3;
+    buffer[pos] = '.';
+    buffer[pos + 1] = DIGIT_TENS[fraction];
+    buffer[pos + 2] = DIGIT_ONES[fraction];
+
+    while (whole >= 100) {
+      long quotient = whole / 100;
+      int pair = (int) (whole - quotient * 100);
+      whole = quotient;
+      buffer[--pos] = DIGIT_ONES[pair];
+      buffer[--pos] = DIGIT_TENS[pair];
+    }
+    if (whole >= 10) {
+      buffer[--pos] = DIGIT_ONES[(int) whole];
+      buffer[--pos] = DIGIT_TENS[(int) whole];
+    } else {
+      buffer[--pos] = (byte) ('0' + whole);
+    }
+  }
+
+  private static int decimalDigits(long value) {
+    int digits = 1;
+    for (long bound = 10; digits < 19 && value >= bound; bound *= 10) {
+      digits++;
+    }
+    return digits;
+  }
+
+  /** Writes a packed IPv4 address in dotted-decimal notation. */
+  private void putIp(int ip) {
+    ensureCapacity(15);
+    putOctet(ip >>> 24);
+    buffer[length++] = '.';
+    putOctet((ip >>> 16) & 0xFF);
+    buffer[length++] = '.';
+    putOctet((ip >>> 8) & 0xFF);
+    buffer[length++] = '.';
+    putOctet(ip & 0xFF);
+  }
+
+  private void putOctet(int octet) {
+    if (octet >= 100) {
+      buffer[length++] = (byte) ('0' + octet / 100);
+      buffer[length++] = (byte) ('0' + octet / 10 % 10);
+    } else if (octet >= 10) {
+      buffer[length++] = (byte) ('0' + octet / 10);
+    }
+    buffer[length++] = (byte) ('0' + octet % 10);
+  }
+
+  /** Writes a JSON-escaped string as UTF-8, without the surrounding quotes. */
+  private void putEscaped(String s) {
+    // Worst case is 6 bytes per char (an escaped control character)
+    ensureCapacity(s.length() * 6);
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        if (c == '"' || c == '\\') {
+          buffer[length++] = '\\';
+          buffer[length++] = (byte) c;
+        } else if (c < 0x20) {
+          buffer[length++] = '\\';
+          buffer[length++] = 'u';
+          buffer[length++] = '0';
+          buffer[length++] = '0';
+          buffer[length++] = HEX[c >> 4];
+          buffer[length++] = HEX[c & 0xF];
+        } else {
+          buffer[length++] = (byte) c;
+        }
+      } else if (c < 0x800) {
+        buffer[length++] = (byte) (0xC0 | (c >> 6));
+        buffer[length++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, s.charAt(++i));
+        buffer[length++] = (byte) (0xF0 | (cp >> 18));
+        buffer[length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+        buffer[length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        buffer[length++] = (byte) (0x80 | (cp & 0x3F));
+      } else {
+        buffer[length++] = (byte) (0xE0 | (c >> 12));
+        buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[length++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+    }
+  }
+
+  private static byte[] ascii(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+}
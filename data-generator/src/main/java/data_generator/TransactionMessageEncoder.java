@@ -0,0 +1,41 @@
+package data_generator;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import data_generator.TransactionGenerator.TransactionEvent;
+
+/**
+ * Turns a transaction event into a Pub/Sub message: serializes it with the
+ * {@link TransactionEncoder} of the selected format, optionally compresses
+ * the payload with a {@link PayloadCodec}, and sets the ordering key.
+ *
+ * Not thread-safe; every generation thread (or pooled slot) owns one.
+ */
+final class TransactionMessageEncoder {
+
+  private final TransactionEncoder encoder;
+  private final PayloadCodec codec; // null when payloads are sent uncompressed
+
+  TransactionMessageEncoder(CardCatalog cards, MerchantDictionary merchants, TransactionEncoder.Format format,
+      PayloadCodec.Type codec) {
+    this.encoder = TransactionEncoder.create(format, cards, merchants);
+    this.codec = PayloadCodec.create(codec);
+  }
+
+  /** Encodes an event into a message keyed by {@code orderingKey} (the card number). */
+  PubsubMessage encode(TransactionEvent event, String orderingKey) {
+    // The encoder buffers are reused for the next event, so the bytes are copied once here;
+    // the Publisher holds on to the data until the batch is sent.
+    int length = encoder.encode(event);
+    PubsubMessage.Builder message = PubsubMessage.newBuilder()
+        .setOrderingKey(orderingKey); // Key is the card number for ordered processing
+    if (codec == null) {
+      return message.setData(ByteString.copyFrom(encoder.buffer(), 0, length)).build();
+    }
+    int compressedLength = codec.compress(encoder.buffer(), length);
+    return message
+        .setData(ByteString.copyFrom(codec.buffer(), 0, compressedLength))
+        .putAttributes(PayloadCodec.CONTENT_ENCODING_ATTRIBUTE, codec.contentEncoding())
+        .build();
+  }
+}
@@ -0,0 +1,52 @@
+package data_generator;
+
+import data_generator.TransactionGenerator.TransactionEvent;
+
+/**
+ * Writes a {@link TransactionEvent} in the Protocol Buffers wire format of the
+ * Transaction message in schemas/transaction.proto, without generated code
+ * or reflection. The fields mirror the BigQuery columns, so a topic with this
+ * schema can feed a BigQuery subscription.
+ */
+final class TransactionProtoEncoder extends BinaryTransactionEncoder {
+
+  // Field number << 3 | wire type (2 = length-delimited, 1 = 64-bit)
+  private static final int CARD_TAG = 1 << 3 | 2;
+  private static final int RECEIVER_TAG = 2 << 3 | 2;
+  private static final int AMOUNT_TAG = 3 << 3 | 1;
+  private static final int IP_TAG = 4 << 3 | 2;
+  private static final int TIMESTAMP_TAG = 5 << 3 | 2;
+
+  TransactionProtoEncoder(CardCatalog cards, MerchantDictionary merchants) {
+    super(cards, merchants);
+  }
+
+  @Override
+  public int encode(TransactionEvent event) {
+    length = 0;
+
+    putByte(CARD_TAG);
+    int lengthPosition = beginShortString();
+    putCardNumber(event.cardIndex);
+    buffer[lengthPosition] = (byte) endShortString(lengthPosition);
+
+    byte[] receiver = merchants.utf8Name(event.receiverId);
+    putByte(RECEIVER_TAG);
+    putVarint(receiver.length);
+    putBytes(receiver);
+
+    putByte(AMOUNT_TAG);
+    putDoubleLittleEndian(event.amountCents / 100.0);
+
+    putByte(IP_TAG);
+    lengthPosition = beginShortString();
+    putIp(event.ipAddress);
+    buffer[lengthPosition] = (byte) endShortString(lengthPosition);
+
+    putByte(TIMESTAMP_TAG);
+    lengthPosition = beginShortString();
+    putTimestamp(event.epochMilli);
+    buffer[lengthPosition] = (byte) endShortString(lengthPosition);
+    return length;
+  }
+}
@@ -0,0 +1,69 @@
+package data_generator;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws the random parts of a transaction (receiver, amount, IP) from one
+ * random stream. Used by every generation mode so they sample identically;
+ * each worker (or simulated card) owns its own sampler.
+ */
+final class TransactionSampler {
+
+  private final RandomGenerator random;
+  private final CardIpStore cardIps;
+  private final AliasTable receivers; // Merchant popularity
+
+  TransactionSampler(RandomGenerator random, CardIpStore cardIps) {
+    this(random, cardIps, Popularity.DEFAULT);
+  }
+
+  TransactionSampler(RandomGenerator random, CardIpStore cardIps, Popularity popularity) {
+    this.random = random;
+    this.cardIps = cardIps; // Sticky IPs; callers only pass cards they own
+    this.receivers = popularity.receivers();
+  }
+
+  int getRandomReceiver() {
+    // For general transactions, any merchant by its popularity
+    return receivers.sample(random);
+  }
+
+  int getReceiverFrom(int[] ids) {
+    // For fraud scenario steps, a merchant of the step's pool (e.g. the charities)
+    return ids[random.nextInt(ids.length)];
+  }
+
+  long getRandomAmount(int receiver) {
+    // Random amount in cents from the receiver's category (within the normal transaction range)
+    return TransactionGenerator.MERCHANTS.category(receiver).sampleAmountCents(random);
+  }
+
+  long getRandomFraudAmount() {
+    // Random amount in cents between FRAUD_MIN_AMOUNT_CENTS and FRAUD_MAX_AMOUNT_CENTS (High value)
+    return random.nextLong(TransactionGenerator.FRAUD_MIN_AMOUNT_CENTS,
+        TransactionGenerator.FRAUD_MAX_AMOUNT_CENTS + 1);
+  }
+
+  /** Generates a new random IPv4 address, packed into an int (never 0.0.0.0). */
+  int generateNewRandomIp() {
+    int ip;
+    do {
+      ip = random.nextInt();
+    } while (ip == CardIpStore.UNASSIGNED);
+    return ip;
+  }
+
+  /**
+   * Retrieves the current IP address for a card, applying stickiness and
+   * a small chance of change.
+   */
+  int getIpForCard(int cardIndex) {
+    int ip = cardIps.get(cardIndex);
+    // If new card, assign a "home" IP; otherwise small chance to change it (simulate travel/new network)
+    if (ip == CardIpStore.UNASSIGNED || random.nextDouble() < TransactionGenerator.IP_CHANGE_PROBABILITY) {
+      ip = generateNewRandomIp();
+      cardIps.set(cardIndex, ip);
+    }
+    return ip;
+  }
+}
@@ -0,0 +1,38 @@
+package data_generator;
+
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * Destination of the generated messages (--sink). Besides Pub/Sub there are
+ * offline sinks, so generation can be run and measured without Google Cloud.
+ *
+ * Implementations are called concurrently from all generation threads; each
+ * ordering key is only ever published from one thread at a time.
+ */
+interface TransactionSink {
+
+  /** The available sinks. */
+  enum Type {
+    // Publish to the Pub/Sub topic (ShardedPublisher)
+    PUBSUB,
+    // Count and discard (NullSink)
+    NULL,
+    // Keep the most recent messages in memory (MemoryRingSink)
+    RING,
+    // Write payloads as newline-delimited JSON to a file or stdout (NdjsonSink)
+    NDJSON,
+    // Record messages to a memory-mapped tape file for replay (TapeRecorder)
+    TAPE
+  }
+
+  /**
+   * Sends one message. Fraud events are flagged for metrics only, and
+   * {@code intendedNanos} is the System.nanoTime() at which the event was
+   * scheduled to be sent, from which publish latency is measured. Returns
+   * false if the sink dropped the message (for example under backpressure).
+   */
+  boolean publish(PubsubMessage message, boolean fraud, long intendedNanos) throws InterruptedException;
+
+  /** Flushes and closes the sink, then prints its totals. */
+  void shutdown() throws InterruptedException;
+}
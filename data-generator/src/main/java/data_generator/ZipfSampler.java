@@ -0,0 +1,83 @@
+package data_generator;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws ranks 0 .. n - 1 from a Zipf (power-law) distribution, where rank r
+ * has weight 1 / (r + 1)^exponent, in O(1) time without allocation.
+ *
+ * The first EXACT_RANKS ranks get their own entry in an {@link AliasTable}.
+ * Beyond them the tail is cut into buckets whose bounds grow by
+ * TAIL_BUCKET_RATIO, each weighted by the integral of the power law over its
+ * ranks; a rank within a bucket is then drawn uniformly. This keeps the table
+ * at about a million entries for 10^8 cards, while the weights within a
+ * bucket differ by at most about 1%.
+ *
+ * Immutable after construction; shared by all generation threads.
+ */
+final class ZipfSampler {
+
+  static final int EXACT_RANKS = 1 << 20;
+  static final double TAIL_BUCKET_RATIO = 1.01;
+
+  private final int size;
+  private final int headSize;
+  // First rank of each tail bucket, followed by size
+  private final int[] bucketStarts;
+  private final AliasTable table;
+
+  ZipfSampler(int size, double exponent) {
+    if (size <= 0 || !(exponent > 0)) {
+      throw new IllegalArgumentException(
+          "Zipf distribution needs a positive size and exponent, got: " + size + ", " + exponent);
+    }
+    this.size = size;
+    this.headSize = Math.min(size, EXACT_RANKS);
+
+    int[] starts = new int[16];
+    int buckets = 0;
+    for (long start = headSize; start < size; ) {
+      if (buckets + 1 >= starts.length) {
+        starts = Arrays.copyOf(starts, starts.length * 2);
+      }
+      starts[buckets++] = (int) start;
+      start = Math.min(size, Math.max(start + 1, (long) Math.ceil(start * TAIL_BUCKET_RATIO)));
+    }
+    starts[buckets] = size;
+    this.bucketStarts = Arrays.copyOf(starts, buckets + 1);
+
+    double[] weights = new double[headSize + buckets];
+    for (int rank = 0; rank < headSize; rank++) {
+      weights[rank] = Math.pow(rank + 1, -exponent);
+    }
+    for (int b = 0; b < buckets; b++) {
+      // Ranks [start, end) are 1-based ranks start + 1 .. end; integrate with a half-rank margin
+      weights[headSize + b] = integral(bucketStarts[b] + 0.5, bucketStarts[b + 1] + 0.5, exponent);
+    }
+    this.table = new AliasTable(weights);
+  }
+
+  /** The integral of x^-exponent from a to b. */
+  private static double integral(double a, double b, double exponent) {
+    if (Math.abs(exponent - 1) < 1e-9) {
+      return Math.log(b / a);
+    }
+    return (Math.pow(b, 1 - exponent) - Math.pow(a, 1 - exponent)) / (1 - exponent);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Draws a rank; 0 is the most likely. */
+  int sample(RandomGenerator random) {
+    int entry = table.sample(random);
+    if (entry < headSize) {
+      return entry;
+    }
+    int bucket = entry - headSize;
+    int start = bucketStarts[bucket];
+    return start + random.nextInt(bucketStarts[bucket + 1] - start);
+  }
+}
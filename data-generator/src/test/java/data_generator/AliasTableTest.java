@@ -0,0 +1,58 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+class AliasTableTest {
+
+  private static final int DRAWS = 2_000_000;
+
+  @Test
+  void drawsInProportionToTheWeights() {
+    double[] weights = {1, 2, 3, 0, 4, 0.5};
+    double sum = 10.5;
+    AliasTable table = new AliasTable(weights);
+    assertEquals(weights.length, table.size());
+
+    int[] counts = new int[weights.length];
+    SplittableRandom random = new SplittableRandom(21);
+    for (int i = 0; i < DRAWS; i++) {
+      counts[table.sample(random)]++;
+    }
+    assertEquals(0, counts[3], "an index with zero weight was drawn");
+    for (int i = 0; i < weights.length; i++) {
+      assertEquals(weights[i] / sum, (double) counts[i] / DRAWS, 0.002, "index " + i);
+    }
+  }
+
+  @Test
+  void handlesSkewedWeights() {
+    // One heavy column and many light ones, which exercises the alias chains
+    double[] weights = new double[1_000];
+    Arrays.fill(weights, 1);
+    weights[500] = 9_000;
+    AliasTable table = new AliasTable(weights);
+    SplittableRandom random = new SplittableRandom(22);
+    int heavy = 0;
+    for (int i = 0; i < DRAWS; i++) {
+      if (table.sample(random) == 500) {
+        heavy++;
+      }
+    }
+    assertEquals(0.9001, (double) heavy / DRAWS, 0.002);
+  }
+
+  @Test
+  void rejectsInvalidWeights() {
+    assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[0]));
+    assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] {1, -1}));
+    assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] {1, Double.NaN}));
+    assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] {1, Double.POSITIVE_INFINITY}));
+    assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] {0, 0}));
+  }
+}
@@ -0,0 +1,67 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+class CardCatalogTest {
+
+  private static final int SIZE = 2_000_000;
+
+  @Test
+  void cardNumbersAreUniqueAndKeepTheirShapes() {
+    CardCatalog cards = new CardCatalog(SIZE, new SplittableRandom(3));
+    Set<String> numbers = new HashSet<>(SIZE * 2);
+    int visa = 0;
+    int mastercard = 0;
+    int amex = 0;
+    for (int i = 0; i < SIZE; i++) {
+      String number = cards.cardNumber(i);
+      assertTrue(numbers.add(number), "card " + i + " repeats number " + number);
+      assertEquals(cards.length(i), number.length());
+      if (number.startsWith("4200")) {
+        assertEquals(16, number.length());
+        visa++;
+      } else if (number.startsWith("5500")) {
+        assertEquals(16, number.length());
+        mastercard++;
+      } else {
+        assertTrue(number.startsWith("3700"), number);
+        assertEquals(15, number.length());
+        amex++;
+      }
+    }
+    assertEquals(0.4, (double) visa / SIZE, 0.01);
+    assertEquals(0.4, (double) mastercard / SIZE, 0.01);
+    assertEquals(0.2, (double) amex / SIZE, 0.01);
+  }
+
+  @Test
+  void theSameSeedGivesTheSameNumbers() {
+    CardCatalog first = new CardCatalog(1_000, new SplittableRandom(5));
+    CardCatalog second = new CardCatalog(1_000, new SplittableRandom(5));
+    for (int i = 0; i < 1_000; i++) {
+      assertEquals(first.cardNumber(i), second.cardNumber(i));
+    }
+  }
+
+  @Test
+  void writesDigitsAtTheGivenOffset() {
+    CardCatalog cards = new CardCatalog(10, new SplittableRandom(5));
+    byte[] dst = new byte[3 + CardCatalog.MAX_DIGITS];
+    int length = cards.writeDigits(9, dst, 3);
+    assertEquals(cards.cardNumber(9), new String(dst, 3, length, StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  void rejectsAnEmptyCatalogue() {
+    assertThrows(IllegalArgumentException.class, () -> new CardCatalog(0, new SplittableRandom(1)));
+  }
+}
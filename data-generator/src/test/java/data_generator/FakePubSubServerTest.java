@@ -0,0 +1,82 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.ProjectTopicName;
+import com.google.pubsub.v1.PubsubMessage;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+class FakePubSubServerTest {
+
+  private static final int KEYS = 20;
+  private static final int MESSAGES_PER_KEY = 100;
+  private static final int TOTAL = KEYS * MESSAGES_PER_KEY;
+
+  @Test
+  void injectedErrorsAreRecoveredInKeyOrder() throws Exception {
+    // UNAVAILABLE is retried inside the Publisher, which holds back the later messages of the key meanwhile.
+    // Codes that pause the key are left to RecoveringPublisherTest: an ordered batch failing with later batches
+    // queued while another thread publishes can deadlock the client library
+    FakePubSubServer fake = new FakePubSubServer(0, 0.1, Status.Code.UNAVAILABLE, TOTAL).start();
+    // One message per request, so that errors hit single messages throughout the run
+    PublisherSettings settings = new PublisherSettings(1, 1_000_000, Duration.ofMillis(1), 10_000, 100_000_000, 4);
+    Publisher publisher = TransactionGenerator.createPublisher(
+        ProjectTopicName.of("test-project", "test-topic"), null, fake, settings, null);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    OutstandingLimiter limiter = new OutstandingLimiter(Long.MAX_VALUE, Long.MAX_VALUE, OutstandingLimiter.Policy.BLOCK);
+    RecoveringPublisher recovering = new RecoveringPublisher(publisher, scheduler, limiter, new PublishLatencyRecorder());
+
+    try {
+      for (int sequence = 0; sequence < MESSAGES_PER_KEY; sequence++) {
+        for (int key = 0; key < KEYS; key++) {
+          // The ack log keeps sizes, not payloads, so the data size carries the position within the key
+          PubsubMessage message = PubsubMessage.newBuilder()
+              .setOrderingKey("key-" + key)
+              .setData(ByteString.copyFrom(new byte[sequence + 1]))
+              .build();
+          limiter.acquire(message.getSerializedSize());
+          recovering.publish(message, false, System.nanoTime());
+        }
+      }
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+      while (recovering.publishedMessageCount() < TOTAL && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+    } finally {
+      scheduler.shutdownNow();
+      recovering.shutdown();
+      recovering.awaitTermination(10, TimeUnit.SECONDS);
+      fake.shutdown();
+    }
+
+    assertEquals(TOTAL, recovering.publishedMessageCount());
+    assertTrue(fake.failedRequestCount() > 0, "no publish request failed");
+    assertEquals(0, recovering.pauseCount());
+
+    List<FakePubSubServer.Ack> acks = fake.ackLog();
+    assertEquals(TOTAL, acks.size());
+    Map<String, Integer> lastSequence = new HashMap<>();
+    for (FakePubSubServer.Ack ack : acks) {
+      int sequence = ack.dataBytes - 1;
+      Integer previous = lastSequence.put(ack.orderingKey, sequence);
+      if (previous != null) {
+        assertTrue(sequence > previous,
+            "key " + ack.orderingKey + " acknowledged message " + sequence + " after " + previous);
+      }
+    }
+    assertEquals(KEYS, lastSequence.size());
+  }
+}
@@ -0,0 +1,102 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import data_generator.MerchantDictionary.Category;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+class FraudScenarioRegistryTest {
+
+  private static Properties properties(String... keysAndValues) {
+    Properties properties = new Properties();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return properties;
+  }
+
+  private static String error(Properties properties) {
+    return assertThrows(IllegalArgumentException.class, () -> FraudScenarioRegistry.fromProperties(properties))
+        .getMessage();
+  }
+
+  @Test
+  void loadsTheBundledScenarios() throws IOException {
+    FraudScenarioRegistry registry = FraudScenarioRegistry.load(null);
+    assertEquals(2, registry.size());
+    assertEquals("charity-drip (2 steps) weight 1.0, micro-drips (3 steps) weight 1.0", registry.toString());
+  }
+
+  @Test
+  void compilesTheSteps() {
+    FraudScenarioRegistry registry = FraudScenarioRegistry.fromProperties(
+        properties("drip.steps", "DRIP charity normal 0; BIG_FRAUD fraud-target fraud 4000"));
+    FraudScenario scenario = registry.sample(new SplittableRandom(1));
+    assertEquals("drip", scenario.name());
+    assertEquals(2, scenario.stepCount());
+    assertEquals("DRIP", scenario.tag(0));
+    assertEquals("BIG_FRAUD", scenario.tag(1));
+    assertEquals(0, scenario.delayMillis(0));
+    assertEquals(4000, scenario.delayMillis(1));
+
+    TransactionSampler sampler = new TransactionSampler(new SplittableRandom(2), new CardIpStore(1));
+    MerchantDictionary merchants = TransactionGenerator.MERCHANTS;
+    for (int i = 0; i < 1_000; i++) {
+      int charity = scenario.receiver(0, sampler);
+      assertEquals(Category.CHARITY, merchants.category(charity));
+      long normal = scenario.amountCents(0, charity, sampler);
+      assertTrue(normal >= Category.CHARITY.minCents && normal <= Category.CHARITY.maxCents, "amount " + normal);
+
+      int target = scenario.receiver(1, sampler);
+      Category category = merchants.category(target);
+      assertTrue(category == Category.ELECTRONICS || category == Category.ONLINE_RETAIL, category.toString());
+      long fraud = scenario.amountCents(1, target, sampler);
+      assertTrue(fraud >= TransactionGenerator.FRAUD_MIN_AMOUNT_CENTS
+          && fraud <= TransactionGenerator.FRAUD_MAX_AMOUNT_CENTS, "amount " + fraud);
+    }
+  }
+
+  @Test
+  void samplesInProportionToTheWeights() {
+    FraudScenarioRegistry registry = FraudScenarioRegistry.fromProperties(properties(
+        "rare.steps", "RARE any normal 0",
+        "common.steps", "COMMON any normal 0",
+        "common.weight", "3"));
+    SplittableRandom random = new SplittableRandom(3);
+    int draws = 400_000;
+    int common = 0;
+    for (int i = 0; i < draws; i++) {
+      if (registry.sample(random).name().equals("common")) {
+        common++;
+      }
+    }
+    assertEquals(0.75, (double) common / draws, 0.005);
+  }
+
+  @Test
+  void rejectsInvalidDefinitions() {
+    assertEquals("No fraud scenarios are defined.", error(properties()));
+    assertEquals("Unknown fraud scenario property: drip.delay",
+        error(properties("drip.steps", "DRIP any normal 0", "drip.delay", "5")));
+    assertEquals("Fraud scenario 'drop' has a weight but no steps.",
+        error(properties("drip.steps", "DRIP any normal 0", "drop.weight", "2")));
+    assertEquals("drip.weight must be a number, got: 'lots'",
+        error(properties("drip.steps", "DRIP any normal 0", "drip.weight", "lots")));
+    assertEquals("Weight of fraud scenario 'drip' must be positive, got: 0.0",
+        error(properties("drip.steps", "DRIP any normal 0", "drip.weight", "0")));
+    assertEquals("Step 2 of fraud scenario 'drip' must be 'TAG RECEIVERS AMOUNT DELAY_MS', got: 'DRIP any normal'",
+        error(properties("drip.steps", "DRIP any normal 0; DRIP any normal")));
+    assertEquals("Unknown receivers in fraud scenario 'drip': 'casino'",
+        error(properties("drip.steps", "DRIP casino normal 0")));
+    assertEquals("Unknown amount in fraud scenario 'drip': 'huge'",
+        error(properties("drip.steps", "DRIP any huge 0")));
+    assertEquals("Delay of fraud scenario 'drip' must be a non-negative number of milliseconds, got: '-5'",
+        error(properties("drip.steps", "DRIP any normal -5")));
+  }
+}
@@ -0,0 +1,127 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import data_generator.OutstandingLimiter.Policy;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class OutstandingLimiterTest {
+
+  @Test
+  void shedReturnsFalseAtTheMessageLimit() throws InterruptedException {
+    OutstandingLimiter limiter = new OutstandingLimiter(2, 1_000, Policy.SHED);
+    assertTrue(limiter.acquire(10));
+    assertTrue(limiter.acquire(10));
+    assertFalse(limiter.acquire(10));
+    assertEquals(1, limiter.shedCount());
+    // A shed message takes no room
+    assertEquals(2, limiter.outstandingMessages());
+    assertEquals(20, limiter.outstandingBytes());
+
+    limiter.release(10);
+    assertTrue(limiter.acquire(10));
+    assertEquals(1, limiter.shedCount());
+  }
+
+  @Test
+  void shedReturnsFalseAtTheByteLimit() throws InterruptedException {
+    OutstandingLimiter limiter = new OutstandingLimiter(100, 100, Policy.SHED);
+    assertTrue(limiter.acquire(60));
+    assertFalse(limiter.acquire(60));
+    assertTrue(limiter.acquire(40));
+    assertEquals(2, limiter.outstandingMessages());
+    assertEquals(100, limiter.outstandingBytes());
+  }
+
+  @Test
+  void aMessageLargerThanTheByteLimitPassesAlone() throws InterruptedException {
+    OutstandingLimiter limiter = new OutstandingLimiter(100, 100, Policy.SHED);
+    assertTrue(limiter.acquire(500));
+    assertFalse(limiter.acquire(1));
+    limiter.release(500);
+    assertTrue(limiter.acquire(1));
+  }
+
+  @Test
+  void releaseReturnsAllRoom() throws InterruptedException {
+    OutstandingLimiter limiter = new OutstandingLimiter(1_000, 1_000_000, Policy.BLOCK);
+    for (int i = 1; i <= 100; i++) {
+      assertTrue(limiter.acquire(i));
+    }
+    assertEquals(100, limiter.outstandingMessages());
+    assertEquals(5_050, limiter.outstandingBytes());
+    for (int i = 1; i <= 100; i++) {
+      limiter.release(i);
+    }
+    assertEquals(0, limiter.outstandingMessages());
+    assertEquals(0, limiter.outstandingBytes());
+  }
+
+  @Test
+  void blockWaitsUntilRelease() throws Exception {
+    OutstandingLimiter limiter = new OutstandingLimiter(1, 1_000, Policy.BLOCK);
+    assertTrue(limiter.acquire(10));
+
+    CountDownLatch acquired = new CountDownLatch(1);
+    AtomicBoolean result = new AtomicBoolean();
+    Thread waiter = new Thread(() -> {
+      try {
+        result.set(limiter.acquire(10));
+        acquired.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt(); // Restore the interrupted status
+      }
+    });
+    waiter.start();
+    assertFalse(acquired.await(200, TimeUnit.MILLISECONDS), "acquired past the limit");
+
+    limiter.release(10);
+    assertTrue(acquired.await(5, TimeUnit.SECONDS), "not woken by the release");
+    assertTrue(result.get());
+    assertEquals(1, limiter.outstandingMessages());
+    assertEquals(0, limiter.shedCount());
+    waiter.join();
+  }
+
+  @Test
+  void blockedCallerCanBeInterrupted() throws Exception {
+    OutstandingLimiter limiter = new OutstandingLimiter(1, 1_000, Policy.BLOCK);
+    assertTrue(limiter.acquire(10));
+
+    CountDownLatch interrupted = new CountDownLatch(1);
+    Thread waiter = new Thread(() -> {
+      try {
+        limiter.acquire(10);
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+    });
+    waiter.start();
+    Thread.sleep(50);
+    waiter.interrupt();
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS), "blocked acquire ignored the interrupt");
+    assertEquals(1, limiter.outstandingMessages());
+  }
+
+  @Test
+  void slowPausesOncePastHalfTheLimit() throws InterruptedException {
+    OutstandingLimiter limiter = new OutstandingLimiter(10, 1_000_000, Policy.SLOW);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(limiter.acquire(1));
+    }
+    // 9 of 10 in flight: 80% of the way from half full to the limit, so a pause of about 4ms
+    for (int i = 0; i < 4; i++) {
+      assertTrue(limiter.acquire(1));
+    }
+    long start = System.nanoTime();
+    assertTrue(limiter.acquire(1));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(3), "no pause near the limit");
+    assertEquals(10, limiter.outstandingMessages());
+  }
+}
@@ -0,0 +1,52 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class RateControllerTest {
+
+  private static final long SLOT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  void unlimitedReturnsTheCurrentTime() throws InterruptedException {
+    RateController controller = RateController.unlimited();
+    for (int i = 0; i < 1_000; i++) {
+      long before = System.nanoTime();
+      long intended = controller.acquire();
+      assertTrue(intended >= before && intended <= System.nanoTime(), "not the time of the call");
+    }
+  }
+
+  @Test
+  void pacedReturnsItsSlotNotTheWakeUpTime() throws InterruptedException {
+    RateController controller = RateController.perSecond(1_000);
+    long first = controller.acquire();
+
+    // Fall 20 slots behind: the missed slots are released at once, each with its own intended time
+    Thread.sleep(20);
+    for (int slot = 1; slot <= 10; slot++) {
+      long intended = controller.acquire();
+      assertEquals(first + slot * SLOT_NANOS, intended, "slot " + slot);
+      assertTrue(System.nanoTime() - intended >= TimeUnit.MILLISECONDS.toNanos(5), "the wake-up time was returned");
+    }
+
+    // A slot in the future is waited for
+    for (int slot = 11; slot <= 40; slot++) {
+      controller.acquire();
+    }
+    long intended = controller.acquire();
+    assertEquals(first + 41 * SLOT_NANOS, intended);
+    assertTrue(System.nanoTime() >= intended, "released before its slot");
+  }
+
+  @Test
+  void rejectsANonPositiveRate() {
+    assertThrows(IllegalArgumentException.class, () -> RateController.perSecond(0));
+    assertThrows(IllegalArgumentException.class, () -> RateController.perSecond(Double.NaN));
+  }
+}
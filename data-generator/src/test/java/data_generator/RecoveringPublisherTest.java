@@ -0,0 +1,203 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.ProjectTopicName;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PubsubMessage;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+class RecoveringPublisherTest {
+
+  private static final int MESSAGES = 500;
+  // The publish request (0-based) that fails
+  private static final int FAILING_REQUEST = 10;
+
+  // The Publish method of the Pub/Sub Publisher service, served without the generated gRPC stubs
+  private static final MethodDescriptor<PublishRequest, PublishResponse> PUBLISH =
+      MethodDescriptor.<PublishRequest, PublishResponse>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName(MethodDescriptor.generateFullMethodName("google.pubsub.v1.Publisher", "Publish"))
+          .setRequestMarshaller(ProtoUtils.marshaller(PublishRequest.getDefaultInstance()))
+          .setResponseMarshaller(ProtoUtils.marshaller(PublishResponse.getDefaultInstance()))
+          .build();
+
+  /** A Pub/Sub Publisher service that fails one request and records the data of the others. */
+  private static final class ScriptedPublisherService {
+    final AtomicInteger requests = new AtomicInteger();
+    final List<String> acknowledged = new ArrayList<>();
+    final CountDownLatch allPublished = new CountDownLatch(1);
+
+    ServerServiceDefinition definition() {
+      return ServerServiceDefinition.builder(PUBLISH.getServiceName())
+          .addMethod(PUBLISH, ServerCalls.asyncUnaryCall(this::publish))
+          .build();
+    }
+
+    void publish(PublishRequest request, StreamObserver<PublishResponse> responseObserver) {
+      if (requests.getAndIncrement() == FAILING_REQUEST) {
+        // The client library can deadlock when an ordered batch fails, with later batches of its key queued,
+        // while another thread is publishing; so the failure waits until every message was handed over
+        try {
+          allPublished.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt(); // Restore the interrupted status
+        }
+        // Not retried inside the Publisher, so the key is paused
+        responseObserver.onError(Status.FAILED_PRECONDITION.asRuntimeException());
+        return;
+      }
+      PublishResponse.Builder response = PublishResponse.newBuilder();
+      synchronized (acknowledged) {
+        for (PubsubMessage message : request.getMessagesList()) {
+          acknowledged.add(message.getData().toStringUtf8());
+          response.addMessageIds(Integer.toString(acknowledged.size()));
+        }
+      }
+      responseObserver.onNext(response.build());
+      responseObserver.onCompleted();
+    }
+
+    int acknowledgedCount() {
+      synchronized (acknowledged) {
+        return acknowledged.size();
+      }
+    }
+  }
+
+  /** An ordering-enabled Publisher over the channel that sends one message per request. */
+  private static Publisher orderedPublisher(ManagedChannel channel) throws IOException {
+    // One message per request, so every failure hits a single message
+    return Publisher.newBuilder(ProjectTopicName.of("test-project", "test-topic"))
+        .setEnableMessageOrdering(true)
+        .setChannelProvider(FixedTransportChannelProvider.create(GrpcTransportChannel.create(channel)))
+        .setCredentialsProvider(NoCredentialsProvider.create())
+        .setBatchingSettings(BatchingSettings.newBuilder()
+            .setElementCountThreshold(1L)
+            .setRequestByteThreshold(1_000_000L)
+            .setDelayThresholdDuration(Duration.ofMillis(1))
+            .build())
+        .build();
+  }
+
+  /** The p50 publish latency, in milliseconds, of the NORMAL or FRAUD events in a latency report. */
+  private static double p50Millis(String report, String series) {
+    Matcher matcher = Pattern.compile("Publish latency " + series + " +n=\\d+ p50=([0-9.]+)ms").matcher(report);
+    assertTrue(matcher.find(), "no " + series + " latencies in: " + report);
+    return Double.parseDouble(matcher.group(1));
+  }
+
+  @Test
+  void pausedKeyResumesInPublishOrder() throws Exception {
+    ScriptedPublisherService service = new ScriptedPublisherService();
+    String name = InProcessServerBuilder.generateName();
+    Server server = InProcessServerBuilder.forName(name).directExecutor().addService(service.definition()).build().start();
+    ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    Publisher publisher = orderedPublisher(channel);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    OutstandingLimiter limiter = new OutstandingLimiter(Long.MAX_VALUE, Long.MAX_VALUE, OutstandingLimiter.Policy.BLOCK);
+    RecoveringPublisher recovering = new RecoveringPublisher(publisher, scheduler, limiter, new PublishLatencyRecorder());
+
+    try {
+      for (int sequence = 0; sequence < MESSAGES; sequence++) {
+        PubsubMessage message = PubsubMessage.newBuilder()
+            .setOrderingKey("card")
+            .setData(ByteString.copyFromUtf8(Integer.toString(sequence)))
+            .build();
+        limiter.acquire(message.getSerializedSize());
+        recovering.publish(message, false, System.nanoTime());
+      }
+      service.allPublished.countDown();
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (service.acknowledgedCount() < MESSAGES && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+    } finally {
+      scheduler.shutdownNow();
+      recovering.shutdown();
+      recovering.awaitTermination(10, TimeUnit.SECONDS);
+      channel.shutdown();
+      server.shutdown();
+    }
+
+    assertEquals(1, recovering.pauseCount());
+    assertEquals(0, recovering.droppedMessageCount());
+    assertEquals(0, recovering.bufferedMessageCount());
+    // Every message was released once it was acknowledged
+    assertEquals(0, limiter.outstandingMessages());
+    List<String> expected = new ArrayList<>();
+    for (int sequence = 0; sequence < MESSAGES; sequence++) {
+      expected.add(Integer.toString(sequence));
+    }
+    assertEquals(expected, service.acknowledged);
+  }
+
+  @Test
+  void latencyIsMeasuredFromTheIntendedSendTime() throws Exception {
+    ScriptedPublisherService service = new ScriptedPublisherService();
+    String name = InProcessServerBuilder.generateName();
+    Server server = InProcessServerBuilder.forName(name).directExecutor().addService(service.definition()).build().start();
+    ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    Publisher publisher = orderedPublisher(channel);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    OutstandingLimiter limiter = new OutstandingLimiter(Long.MAX_VALUE, Long.MAX_VALUE, OutstandingLimiter.Policy.BLOCK);
+    PublishLatencyRecorder latencies = new PublishLatencyRecorder();
+    RecoveringPublisher recovering = new RecoveringPublisher(publisher, scheduler, limiter, latencies);
+
+    try {
+      // The event was due half a second ago, as after a generator stall; the acknowledgement itself is immediate
+      PubsubMessage message = PubsubMessage.newBuilder()
+          .setOrderingKey("card")
+          .setData(ByteString.copyFromUtf8("0"))
+          .build();
+      limiter.acquire(message.getSerializedSize());
+      recovering.publish(message, true, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(500));
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (recovering.publishedMessageCount() < 1 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+    } finally {
+      scheduler.shutdownNow();
+      recovering.shutdown();
+      recovering.awaitTermination(10, TimeUnit.SECONDS);
+      channel.shutdown();
+      server.shutdown();
+    }
+
+    String report = latencies.totalReport();
+    assertTrue(p50Millis(report, "FRAUD") >= 500, report);
+    assertTrue(report.contains("NORMAL n=0"), report);
+  }
+}
@@ -0,0 +1,47 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+class ShardedPublisherTest {
+
+  private static final int SHARDS = 8;
+  private static final int CARDS = 200_000;
+
+  private final CardCatalog cards = new CardCatalog(CARDS, new SplittableRandom(41));
+
+  @Test
+  void aKeyAlwaysMapsToTheSameShard() {
+    int[] first = new int[CARDS];
+    for (int i = 0; i < CARDS; i++) {
+      first[i] = ShardedPublisher.shardOf(cards.cardNumber(i), SHARDS);
+      assertTrue(first[i] >= 0 && first[i] < SHARDS, "shard " + first[i]);
+    }
+    // A fresh String for every lookup, as each event builds its own ordering key
+    for (int i = 0; i < CARDS; i++) {
+      assertEquals(first[i], ShardedPublisher.shardOf(new String(cards.cardNumber(i)), SHARDS), "card " + i);
+    }
+  }
+
+  @Test
+  void keysSpreadEvenlyOverTheShards() {
+    int[] counts = new int[SHARDS];
+    for (int i = 0; i < CARDS; i++) {
+      counts[ShardedPublisher.shardOf(cards.cardNumber(i), SHARDS)]++;
+    }
+    for (int shard = 0; shard < SHARDS; shard++) {
+      assertEquals(1.0 / SHARDS, (double) counts[shard] / CARDS, 0.005, "shard " + shard);
+    }
+  }
+
+  @Test
+  void aSingleShardTakesEveryKey() {
+    for (int i = 0; i < 1_000; i++) {
+      assertEquals(0, ShardedPublisher.shardOf(cards.cardNumber(i), 1));
+    }
+  }
+}
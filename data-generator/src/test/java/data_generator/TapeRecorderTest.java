@@ -0,0 +1,124 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+class TapeRecorderTest {
+
+  private static final int MESSAGES = 10_000;
+
+  /** A message as it reached a sink. */
+  private static final class Published {
+    final PubsubMessage message;
+    final boolean fraud;
+
+    Published(PubsubMessage message, boolean fraud) {
+      this.message = message;
+      this.fraud = fraud;
+    }
+  }
+
+  /** Keeps every message it is given, in arrival order. */
+  private static final class CapturingSink implements TransactionSink {
+    final List<Published> published = new ArrayList<>();
+
+    @Override
+    public synchronized boolean publish(PubsubMessage message, boolean fraud, long intendedNanos) {
+      published.add(new Published(message, fraud));
+      return true;
+    }
+
+    @Override
+    public void shutdown() {}
+  }
+
+  /** Messages over a few cards, with fraud flags, attributes and payloads of varying size (some empty). */
+  private static List<Published> randomMessages() {
+    SplittableRandom random = new SplittableRandom(20);
+    List<Published> messages = new ArrayList<>();
+    for (int i = 0; i < MESSAGES; i++) {
+      byte[] data = new byte[random.nextInt(0, 300)];
+      random.nextBytes(data);
+      PubsubMessage.Builder message = PubsubMessage.newBuilder()
+          .setOrderingKey("card-" + random.nextInt(50) + "-é")
+          .setData(ByteString.copyFrom(data));
+      if (random.nextInt(4) == 0) {
+        message.putAttributes("codec", "zstd").putAttributes("sequence", Integer.toString(i));
+      }
+      messages.add(new Published(message.build(), random.nextInt(10) == 0));
+    }
+    return messages;
+  }
+
+  private static List<Published> recordAndReplay(List<Published> messages, int threads) throws Exception {
+    Path tape = Files.createTempFile("transactions", ".tape");
+    try {
+      TapeRecorder recorder = new TapeRecorder(tape);
+      for (Published published : messages) {
+        recorder.publish(published.message, published.fraud, System.nanoTime());
+      }
+      recorder.shutdown();
+
+      CapturingSink sink = new CapturingSink();
+      TapeReplayer replayer = new TapeReplayer(tape, sink, threads, 0);
+      replayer.start();
+      replayer.awaitTermination();
+      return sink.published;
+    } finally {
+      Files.delete(tape);
+    }
+  }
+
+  @Test
+  void replaysEveryMessageInRecordedOrder() throws Exception {
+    List<Published> recorded = randomMessages();
+    List<Published> replayed = recordAndReplay(recorded, 1);
+    assertEquals(recorded.size(), replayed.size());
+    for (int i = 0; i < recorded.size(); i++) {
+      assertEquals(recorded.get(i).message, replayed.get(i).message, "message " + i);
+      assertEquals(recorded.get(i).fraud, replayed.get(i).fraud, "fraud flag of message " + i);
+    }
+  }
+
+  @Test
+  void replayThreadsKeepEachOrderingKeyInOrder() throws Exception {
+    List<Published> recorded = randomMessages();
+    List<Published> replayed = recordAndReplay(recorded, 4);
+    assertEquals(byOrderingKey(recorded), byOrderingKey(replayed));
+  }
+
+  @Test
+  void rejectsAFileThatIsNotATape() throws IOException {
+    Path file = Files.createTempFile("transactions", ".tape");
+    try {
+      Files.write(file, new byte[TapeRecorder.HEADER_SIZE]);
+      assertThrows(IOException.class, () -> new TapeReplayer(file, new CapturingSink(), 1, 0));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static Map<String, List<String>> byOrderingKey(List<Published> messages) {
+    Map<String, List<String>> byKey = new HashMap<>();
+    for (Published published : messages) {
+      byKey.computeIfAbsent(published.message.getOrderingKey(), key -> new ArrayList<>())
+          .add(published.fraud + " " + published.message.getAttributesMap() + " "
+              + Base64.getEncoder().encodeToString(published.message.getData().toByteArray()));
+    }
+    return byKey;
+  }
+}
@@ -0,0 +1,75 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+class TimelineMergeTest {
+
+  private static final Pattern TIMESTAMP = Pattern.compile("\"timestamp\":\"([^\"]+)\"");
+
+  /** Keeps every message it is given, in arrival order. */
+  private static final class CapturingSink implements TransactionSink {
+    final List<PubsubMessage> messages = new ArrayList<>();
+    int fraudCount;
+
+    @Override
+    public boolean publish(PubsubMessage message, boolean fraud, long intendedNanos) {
+      messages.add(message);
+      if (fraud) {
+        fraudCount++;
+      }
+      return true;
+    }
+
+    @Override
+    public void shutdown() {}
+  }
+
+  private static LocalDateTime eventTime(PubsubMessage message) {
+    Matcher matcher = TIMESTAMP.matcher(message.getData().toStringUtf8());
+    assertTrue(matcher.find(), "no timestamp in " + message.getData().toStringUtf8());
+    return LocalDateTime.parse(matcher.group(1));
+  }
+
+  @Test
+  void emitsEventsInNonDecreasingEventTimeAcrossCards() throws IOException, InterruptedException {
+    CardCatalog cards = new CardCatalog(10_000, new SplittableRandom(1));
+    CapturingSink sink = new CapturingSink();
+    int activeCards = 1_000;
+    TimelineMerge merge = new TimelineMerge(cards, new CardIpStore(cards.size()), sink,
+        () -> new TransactionMessageEncoder(cards, TransactionGenerator.MERCHANTS, TransactionEncoder.Format.JSON,
+            PayloadCodec.Type.NONE),
+        FraudScenarioRegistry.load(null), Popularity.DEFAULT, activeCards, 0, new SplittableRandom(23),
+        1_700_000_000_000L);
+
+    // Driven on the test thread, without start(), so the run is the same every time
+    for (int i = 0; i < 100_000; i++) {
+      merge.advance();
+    }
+
+    LocalDateTime previous = LocalDateTime.MIN;
+    Set<String> cardNumbers = new HashSet<>();
+    for (PubsubMessage message : sink.messages) {
+      LocalDateTime time = eventTime(message);
+      assertTrue(!time.isBefore(previous), time + " published after " + previous);
+      previous = time;
+      cardNumbers.add(message.getOrderingKey());
+    }
+    // Every active card took part, and fraud scenario steps were merged in with the purchases
+    assertEquals(activeCards, cardNumbers.size());
+    assertTrue(sink.fraudCount > 0, "no fraud scenario step was published");
+  }
+}
@@ -0,0 +1,70 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+class TimestampEncoderTest {
+
+  private final TimestampEncoder encoder = new TimestampEncoder();
+  private final byte[] buffer = new byte[TimestampEncoder.MAX_LENGTH];
+
+  private void assertMatchesJavaTime(long epochMilli) {
+    int length = encoder.write(epochMilli, buffer, 0);
+    assertEquals(TimestampEncoder.format(epochMilli), new String(buffer, 0, length, StandardCharsets.US_ASCII),
+        "epoch millis " + epochMilli);
+  }
+
+  @Test
+  void matchesJavaTimeAtBoundaries() {
+    long[] times = {
+        0L, // 1970-01-01T00:00:00
+        -1L, // 1969-12-31T23:59:59.999
+        951_782_400_000L, // 2000-02-29T00:00:00
+        951_868_799_999L, // 2000-02-29T23:59:59.999
+        4_107_542_400_000L, // 2100-03-01T00:00:00
+        -62_167_219_200_000L, // 0000-01-01T00:00:00
+        -62_167_219_200_001L, // Year -1, printed by java.time
+        253_402_300_799_999L, // 9999-12-31T23:59:59.999
+        253_402_300_800_000L, // Year 10000, printed by java.time
+        Long.MIN_VALUE, // The longest output
+        Long.MAX_VALUE,
+        1_700_000_000_500L, // ".5"
+        1_700_000_000_250L, // ".25"
+        1_700_000_000_125L, // ".125"
+        1_700_000_000_010L, // ".01"
+    };
+    for (long time : times) {
+      assertMatchesJavaTime(time);
+    }
+  }
+
+  @Test
+  void matchesJavaTimeForRandomTimes() {
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < 1_000_000; i++) {
+      assertMatchesJavaTime(random.nextLong(-62_167_219_200_000L, 253_402_300_800_000L));
+    }
+  }
+
+  @Test
+  void matchesJavaTimeAlongAnAdvancingClock() {
+    // Steps like the workers' clocks, crossing seconds, minutes, days and years with a warm cache
+    SplittableRandom random = new SplittableRandom(7);
+    long time = 1_703_980_000_000L; // 2023-12-30T23:46:40
+    for (int i = 0; i < 1_000_000; i++) {
+      time += random.nextInt(0, 2_000);
+      assertMatchesJavaTime(time);
+    }
+  }
+
+  @Test
+  void writesAtTheGivenOffset() {
+    byte[] dst = new byte[5 + TimestampEncoder.MAX_LENGTH];
+    int length = encoder.write(1_700_000_000_123L, dst, 5);
+    assertEquals("2023-11-14T22:13:20.123", new String(dst, 5, length, StandardCharsets.US_ASCII));
+  }
+}
@@ -0,0 +1,103 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+class TimingWheelTest {
+
+  private static final long TICK = 10;
+  private static final long START = 1_000;
+
+  private static final class Probe extends TimingWheel.Timer {
+    final long deadline;
+    final int order;
+
+    Probe(long deadline, int order) {
+      this.deadline = deadline;
+      this.order = order;
+    }
+  }
+
+  @Test
+  void releasesATimerOnceItsDeadlineHasPassed() {
+    TimingWheel<Probe> wheel = new TimingWheel<>(TICK, 8, START);
+    Probe probe = new Probe(START + 15, 0);
+    wheel.schedule(probe, probe.deadline);
+    assertNull(wheel.poll(START));
+    assertNull(wheel.poll(START + 14));
+    // Deadlines are rounded up to the next tick
+    assertNull(wheel.poll(START + 19));
+    assertSame(probe, wheel.poll(START + 20));
+    assertNull(wheel.poll(START + 20));
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  void releasesPastDeadlinesOnTheNextPoll() {
+    TimingWheel<Probe> wheel = new TimingWheel<>(TICK, 8, START);
+    assertNull(wheel.poll(START + 500));
+    Probe late = new Probe(START, 0);
+    wheel.schedule(late, late.deadline);
+    assertSame(late, wheel.poll(START + 500));
+  }
+
+  @Test
+  void releasesInDeadlineOrderAcrossRevolutions() {
+    // A small wheel, so most deadlines lie several revolutions ahead
+    TimingWheel<Probe> wheel = new TimingWheel<>(TICK, 8, START);
+    SplittableRandom random = new SplittableRandom(11);
+    int count = 100_000;
+    for (int i = 0; i < count; i++) {
+      long deadline = START + random.nextLong(0, 50 * TICK);
+      wheel.schedule(new Probe(deadline, i), deadline);
+    }
+    assertEquals(count, wheel.size());
+
+    long previousTick = Long.MIN_VALUE;
+    int previousOrder = -1;
+    int released = 0;
+    for (long now = START; released < count; now += random.nextLong(1, 2 * TICK)) {
+      Probe probe;
+      while ((probe = wheel.poll(now)) != null) {
+        assertTrue(probe.deadline <= now, "released at " + now + " before its deadline " + probe.deadline);
+        long tick = Math.floorDiv(probe.deadline - START + TICK - 1, TICK);
+        assertTrue(tick >= previousTick, "released out of deadline order");
+        if (tick == previousTick) {
+          assertTrue(probe.order > previousOrder, "timers of one tick released out of schedule order");
+        }
+        previousTick = tick;
+        previousOrder = probe.order;
+        released++;
+      }
+    }
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  void timersScheduledWhilePollingAreNeverEarly() {
+    // The way the workers use it: each released step schedules the next one of its run
+    TimingWheel<Probe> wheel = new TimingWheel<>(TICK, 16, START);
+    SplittableRandom random = new SplittableRandom(12);
+    int remaining = 50_000;
+    for (int i = 0; i < 100; i++) {
+      long deadline = START + random.nextLong(0, 40 * TICK);
+      wheel.schedule(new Probe(deadline, i), deadline);
+    }
+    for (long now = START; wheel.size() > 0; now += random.nextLong(0, 3 * TICK)) {
+      Probe probe;
+      while ((probe = wheel.poll(now)) != null) {
+        assertTrue(probe.deadline <= now, "released at " + now + " before its deadline " + probe.deadline);
+        if (--remaining > 0) {
+          long deadline = now + random.nextLong(0, 40 * TICK);
+          wheel.schedule(new Probe(deadline, 0), deadline);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import data_generator.TransactionGenerator.TransactionEvent;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.SplittableRandom;
+
+class TransactionAvroEncoderTest {
+
+  private final CardCatalog cards = new CardCatalog(1_000, new SplittableRandom(1));
+  private final TransactionAvroEncoder encoder = new TransactionAvroEncoder(cards, TransactionGenerator.MERCHANTS);
+  private final GenericDatumReader<GenericRecord> reader;
+
+  TransactionAvroEncoderTest() throws IOException {
+    // Tests run from the module directory
+    Schema schema = new Schema.Parser().parse(new File("schemas/transaction.avsc"));
+    reader = new GenericDatumReader<>(schema);
+  }
+
+  /** Reads the encoding with the Avro library against schemas/transaction.avsc. */
+  private GenericRecord encodeAndRead(TransactionEvent event) throws IOException {
+    int length = encoder.encode(event);
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(encoder.buffer(), 0, length, null);
+    GenericRecord transaction = reader.read(null, decoder);
+    assertTrue(decoder.isEnd(), "bytes left after the record");
+    return transaction;
+  }
+
+  @Test
+  void readsWithTheAvroLibrary() throws IOException {
+    int receiver = 3;
+    GenericRecord transaction = encodeAndRead(new TransactionEvent(7, receiver, 123_456, 0x0A000102, 1_700_000_000_500L));
+    assertEquals(cards.cardNumber(7), transaction.get("credit_card_number").toString());
+    assertEquals(TransactionGenerator.MERCHANTS.name(receiver), transaction.get("receiver").toString());
+    assertEquals(1234.56, transaction.get("amount"));
+    assertEquals("10.0.1.2", transaction.get("ip_address").toString());
+    assertEquals("2023-11-14T22:13:20.5", transaction.get("timestamp").toString());
+  }
+
+  @Test
+  void readsRandomEventsWithTheAvroLibrary() throws IOException {
+    SplittableRandom random = new SplittableRandom(17);
+    for (int i = 0; i < 100_000; i++) {
+      TransactionEvent event = new TransactionEvent(random.nextInt(1_000),
+          random.nextInt(TransactionGenerator.MERCHANTS.size()), random.nextLong(0, 100_000_000), random.nextInt(),
+          random.nextLong(0, 4_000_000_000_000L));
+      // The same encoder for every event, as in the publishers, so stale bytes would show
+      GenericRecord transaction = encodeAndRead(event);
+      assertEquals(cards.cardNumber(event.cardIndex), transaction.get("credit_card_number").toString());
+      assertEquals(TransactionGenerator.MERCHANTS.name(event.receiverId), transaction.get("receiver").toString());
+      assertEquals(event.amountCents / 100.0, transaction.get("amount"));
+      assertEquals(CardIpStore.format(event.ipAddress), transaction.get("ip_address").toString());
+      assertEquals(LocalDateTime.ofInstant(Instant.ofEpochMilli(event.epochMilli), ZoneOffset.UTC),
+          LocalDateTime.parse(transaction.get("timestamp").toString()));
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import data_generator.TransactionGenerator.TransactionEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+class TransactionJsonEncoderTest {
+
+  private static final String AMOUNT_FIELD = "\"amount\":";
+  private static final String IP_FIELD = ",\"ip_address\"";
+
+  private final CardCatalog cards = new CardCatalog(1_000, new SplittableRandom(1));
+  private final TransactionJsonEncoder encoder = new TransactionJsonEncoder(cards, TransactionGenerator.MERCHANTS);
+
+  private String encode(TransactionEvent event) {
+    int length = encoder.encode(event);
+    return new String(encoder.buffer(), 0, length, StandardCharsets.UTF_8);
+  }
+
+  private String encodedAmount(long cents) {
+    String json = encode(new TransactionEvent(0, 0, cents, 0, 0L));
+    int start = json.indexOf(AMOUNT_FIELD) + AMOUNT_FIELD.length();
+    return json.substring(start, json.indexOf(IP_FIELD, start));
+  }
+
+  private void assertCents(long cents) {
+    assertEquals(BigDecimal.valueOf(cents, 2).toPlainString(), encodedAmount(cents), "cents " + cents);
+  }
+
+  @Test
+  void writesCentsWithTwoFractionDigits() {
+    assertEquals("0.00", encodedAmount(0));
+    assertEquals("0.05", encodedAmount(5));
+    assertEquals("0.50", encodedAmount(50));
+    assertEquals("12.10", encodedAmount(1_210));
+    assertEquals("7000.00", encodedAmount(700_000));
+    assertEquals("-3.07", encodedAmount(-307));
+  }
+
+  @Test
+  void matchesBigDecimalAcrossDigitCounts() {
+    // Every power of ten and its neighbours, where the digit count changes
+    for (long power = 1; power > 0 && power <= Long.MAX_VALUE / 10; power *= 10) {
+      for (long cents : new long[] {power - 1, power, power + 1, 10 * power - 1}) {
+        assertCents(cents);
+        assertCents(-cents);
+      }
+    }
+    assertCents(Long.MAX_VALUE);
+    assertCents(-Long.MAX_VALUE);
+  }
+
+  @Test
+  void matchesBigDecimalForRandomAmounts() {
+    SplittableRandom random = new SplittableRandom(9);
+    for (int i = 0; i < 1_000_000; i++) {
+      // Spread over all magnitudes rather than clustering near the maximum
+      assertCents(random.nextLong() >> random.nextInt(64));
+    }
+  }
+
+  @Test
+  void writesTheWholeEvent() {
+    int receiver = 3;
+    TransactionEvent event = new TransactionEvent(7, receiver, 123_456, 0x0A000102, 1_700_000_000_500L);
+    assertEquals("{\"credit_card_number\":\"" + cards.cardNumber(7)
+        + "\",\"receiver\":\"" + TransactionGenerator.MERCHANTS.name(receiver)
+        + "\",\"amount\":1234.56,\"ip_address\":\"10.0.1.2\",\"timestamp\":\"2023-11-14T22:13:20.5\"}",
+        encode(event));
+  }
+}
@@ -0,0 +1,57 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import data_generator.TransactionGenerator.TransactionEvent;
+import data_generator.schema.TransactionSchema.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.SplittableRandom;
+
+class TransactionProtoEncoderTest {
+
+  private final CardCatalog cards = new CardCatalog(1_000, new SplittableRandom(1));
+  private final TransactionProtoEncoder encoder = new TransactionProtoEncoder(cards, TransactionGenerator.MERCHANTS);
+
+  /** Parses the encoding with the parser protoc generates from schemas/transaction.proto. */
+  private Transaction encodeAndParse(TransactionEvent event) throws InvalidProtocolBufferException {
+    int length = encoder.encode(event);
+    Transaction transaction = Transaction.parser().parseFrom(encoder.buffer(), 0, length);
+    assertTrue(transaction.getUnknownFields().asMap().isEmpty(), "fields outside the schema");
+    return transaction;
+  }
+
+  @Test
+  void parsesWithTheGeneratedParser() throws InvalidProtocolBufferException {
+    int receiver = 3;
+    Transaction transaction = encodeAndParse(new TransactionEvent(7, receiver, 123_456, 0x0A000102, 1_700_000_000_500L));
+    assertEquals(cards.cardNumber(7), transaction.getCreditCardNumber());
+    assertEquals(TransactionGenerator.MERCHANTS.name(receiver), transaction.getReceiver());
+    assertEquals(1234.56, transaction.getAmount());
+    assertEquals("10.0.1.2", transaction.getIpAddress());
+    assertEquals("2023-11-14T22:13:20.5", transaction.getTimestamp());
+  }
+
+  @Test
+  void parsesRandomEventsWithTheGeneratedParser() throws InvalidProtocolBufferException {
+    SplittableRandom random = new SplittableRandom(17);
+    for (int i = 0; i < 100_000; i++) {
+      TransactionEvent event = new TransactionEvent(random.nextInt(1_000),
+          random.nextInt(TransactionGenerator.MERCHANTS.size()), random.nextLong(0, 100_000_000), random.nextInt(),
+          random.nextLong(0, 4_000_000_000_000L));
+      // The same encoder for every event, as in the publishers, so stale bytes would show
+      Transaction transaction = encodeAndParse(event);
+      assertEquals(cards.cardNumber(event.cardIndex), transaction.getCreditCardNumber());
+      assertEquals(TransactionGenerator.MERCHANTS.name(event.receiverId), transaction.getReceiver());
+      assertEquals(event.amountCents / 100.0, transaction.getAmount());
+      assertEquals(CardIpStore.format(event.ipAddress), transaction.getIpAddress());
+      assertEquals(LocalDateTime.ofInstant(Instant.ofEpochMilli(event.epochMilli), ZoneOffset.UTC),
+          LocalDateTime.parse(transaction.getTimestamp()));
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package data_generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+class ZipfSamplerTest {
+
+  private static final int DRAWS = 2_000_000;
+
+  /** Sum of (r + 1)^-exponent over ranks [from, to). */
+  private static double weight(int from, int to, double exponent) {
+    double sum = 0;
+    for (int rank = to - 1; rank >= from; rank--) {
+      sum += Math.pow(rank + 1, -exponent);
+    }
+    return sum;
+  }
+
+  @Test
+  void drawsExactProportionsWithinTheHead() {
+    int size = 50;
+    double exponent = 1.2;
+    ZipfSampler sampler = new ZipfSampler(size, exponent);
+    int[] counts = new int[size];
+    SplittableRandom random = new SplittableRandom(31);
+    for (int i = 0; i < DRAWS; i++) {
+      counts[sampler.sample(random)]++;
+    }
+    double total = weight(0, size, exponent);
+    for (int rank = 0; rank < size; rank++) {
+      assertEquals(Math.pow(rank + 1, -exponent) / total, (double) counts[rank] / DRAWS, 0.002, "rank " + rank);
+    }
+  }
+
+  @Test
+  void weighsTheBucketedTailLikeThePowerLaw() {
+    int size = 10_000_000;
+    double exponent = 1.0;
+    ZipfSampler sampler = new ZipfSampler(size, exponent);
+    assertEquals(size, sampler.size());
+
+    int head = ZipfSampler.EXACT_RANKS;
+    int upperHalf = size / 2;
+    int first = 0;
+    int tail = 0;
+    int tailUpperHalf = 0;
+    SplittableRandom random = new SplittableRandom(32);
+    for (int i = 0; i < DRAWS; i++) {
+      int rank = sampler.sample(random);
+      assertTrue(rank >= 0 && rank < size, "rank " + rank);
+      if (rank == 0) {
+        first++;
+      } else if (rank >= head) {
+        tail++;
+        if (rank >= upperHalf) {
+          tailUpperHalf++;
+        }
+      }
+    }
+
+    double total = weight(0, size, exponent);
+    assertEquals(1 / total, (double) first / DRAWS, 0.002);
+    assertEquals(weight(head, size, exponent) / total, (double) tail / DRAWS, 0.002);
+    // Within the tail, ranks are spread by the power law, not uniformly
+    assertEquals(weight(upperHalf, size, exponent) / total, (double) tailUpperHalf / DRAWS, 0.002);
+  }
+
+  @Test
+  void rejectsInvalidParameters() {
+    assertThrows(IllegalArgumentException.class, () -> new ZipfSampler(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new ZipfSampler(10, 0));
+    assertThrows(IllegalArgumentException.class, () -> new ZipfSampler(10, Double.NaN));
+  }
+}